@@ -0,0 +1,68 @@
+package aco_vrp;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Clase que construye los ejemplares con los que se ejecutan los benchmarks.
+ * Los ejemplares E15, E20 y E30 se leen de la copia binaria en files/cache o,
+ * si no existe, de la base de datos. Un nombre con solo digitos es un
+ * ejemplar sintetico de InstanceGenerator con ese numero de clientes,
+ * siempre con la misma semilla.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class BenchmarkInstances {
+
+	/* Semilla de los ejemplares sinteticos. */
+	private static final long SEED = 7;
+
+	/**
+	 * Metodo que construye el ejemplar con el nombre dado.
+	 * @param name E15, E20, E30 o el numero de clientes de un ejemplar
+	 * sintetico.
+	 * @return el ejemplar.
+	 */
+	public static Instance load (String name) {
+		if (name.matches("\\d+")) {
+			return synthetic(Integer.parseInt(name));
+		}
+
+		return bundled(new File("files/" + name + ".txt"));
+	}
+
+	/**
+	 * Metodo que construye un ejemplar sintetico con n clientes, incluyendo
+	 * al deposito, distribuidos uniformemente en el plano.
+	 * @param n el numero de clientes.
+	 * @return el ejemplar.
+	 */
+	public static Instance synthetic (int n) {
+		InstanceGenerator generator = new InstanceGenerator(SEED);
+		return generator.generate(n - 1, InstanceGenerator.Layout.UNIFORM);
+	}
+
+	/**
+	 * Metodo que construye uno de los ejemplares de la carpeta files, con el
+	 * deposito como primer cliente.
+	 * @param file el archivo con los IDs y las demandas de los clientes.
+	 * @return el ejemplar.
+	 */
+	public static Instance bundled (File file) {
+		OrdersSource source = new OrdersSource(file, new InstanceSnapshot(new File("files/cache")));
+
+		try {
+			Instance instance = source.load();
+			instance.getDistances();
+			return instance;
+		} catch (IOException e) {
+			throw new IllegalStateException("No se pudo leer el ejemplar " + file, e);
+		} catch (SQLException e) {
+			throw new IllegalStateException("El ejemplar " + file + " no esta en files/cache " +
+			                                "y no se pudo acceder a la base de datos.", e);
+		} finally {
+			source.close();
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package aco_vrp;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Clase principal de los benchmarks. Ejecuta los benchmarks con el profiler
+ * de memoria de JMH, que reporta la cantidad de memoria que se asigna por
+ * operacion. Acepta las mismas opciones que la linea de comandos de JMH; si
+ * no se indica ningun benchmark se ejecutan todos.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Metodo main de los benchmarks.
+	 * @param args las opciones de JMH.
+	 * @throws RunnerException si ocurre un error al ejecutar los benchmarks.
+	 * @throws CommandLineOptionException si alguna opcion no es valida.
+	 */
+	public static void main (String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(commandLine);
+
+		if (commandLine.getIncludes().isEmpty()) {
+			builder.include("aco_vrp\\..*Benchmark");
+		}
+
+		Options options = builder.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,61 @@
+package aco_vrp;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/**
+ * Benchmark de la construccion de las listas de candidatos. Como las listas
+ * se guardan para cada matriz de distancias, buildCandidates mide la
+ * seleccion de los candidatos de todos los clientes en un solo hilo y
+ * obtainCandidates mide la asignacion de las listas ya construidas.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CandidatesBenchmark extends InstanceState {
+
+	/* Longitud de las listas de candidatos. */
+	@Param({"5", "10"})
+	public int length;
+
+	/* Constructor de las listas de candidatos. */
+	private Candidates candidates;
+
+	@Override
+	protected void setUp () {
+		candidates = new Candidates(length);
+	}
+
+	/**
+	 * Metodo que selecciona los candidatos de cada cliente de la matriz.
+	 * @return las listas de candidatos.
+	 */
+	@Benchmark
+	public int[][] buildCandidates () {
+		DistanceMatrix distances = data.getDistances();
+		int depot = data.getDepot().getIndex();
+		int[][] neighbours = new int[distances.size()][];
+
+		for (int i = 0; i < neighbours.length; i++) {
+			neighbours[i] = candidates.searchCandidates(distances, i, depot);
+		}
+
+		return neighbours;
+	}
+
+	/**
+	 * Metodo que actualiza las listas de candidatos de los clientes.
+	 */
+	@Benchmark
+	public void obtainCandidates () {
+		candidates.obtainCandidates(vrp.getClients(), data.getDistances());
+	}
+}
@@ -0,0 +1,113 @@
+package aco_vrp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.javatuples.Pair;
+
+/**
+ * Benchmark que compara la busqueda de la distancia en listas de tuplas
+ * [ID, distancia] por cliente, como se guardaban antes de la matriz, con la
+ * consulta a la matriz de distancias. Las listas solo se construyen aqui.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DistanceBenchmark extends InstanceState {
+
+	/* Numero de pares de clientes que se consultan en cada invocacion. */
+	private static final int PAIRS = 1024;
+
+	/* Indices del primer cliente de cada par. */
+	private int[] from;
+	/* Indices del segundo cliente de cada par. */
+	private int[] to;
+	/* Lista de distancias de cada cliente con la forma [ID, distancia]. */
+	private List<List<Pair<Integer, Integer>>> lists;
+
+	@Override
+	protected void setUp () {
+		int n = data.getDistances().size();
+		Random random = new Random(7);
+		from = new int[PAIRS];
+		to = new int[PAIRS];
+
+		for (int k = 0; k < PAIRS; k++) {
+			from[k] = random.nextInt(n);
+			to[k] = (from[k] + 1 + random.nextInt(n - 1)) % n;
+		}
+
+		List<Client> clients = vrp.getClients();
+		DistanceMatrix distances = data.getDistances();
+		lists = new ArrayList<List<Pair<Integer, Integer>>>(n);
+		for (int i = 0; i < n; i++) {
+			List<Pair<Integer, Integer>> list = new ArrayList<Pair<Integer, Integer>>(n - 1);
+			for (int j = 0; j < n; j++) {
+				if (j != i) {
+					list.add(new Pair<Integer, Integer>(clients.get(j).getId(), distances.distance(i, j)));
+				}
+			}
+			lists.add(list);
+		}
+	}
+
+	/**
+	 * Metodo que busca las distancias en las listas de distancias.
+	 * @return la suma de las distancias.
+	 */
+	@Benchmark
+	public long searchDistance () {
+		List<Client> clients = vrp.getClients();
+		long sum = 0;
+
+		for (int k = 0; k < PAIRS; k++) {
+			sum += searchDistance(lists.get(from[k]), clients.get(to[k]).getId());
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Metodo auxiliar que busca la distancia al cliente 2 en una lista de
+	 * distancias. Es una copia de Client.searchDistance antes de la matriz
+	 * de distancias, que recorre toda la lista aunque ya haya encontrado al
+	 * cliente.
+	 */
+	private static int searchDistance (List<Pair<Integer, Integer>> distances, int idClient2) {
+		int distance = 0;
+
+		for (Pair<Integer, Integer> aux : distances) {
+			int idClientA = aux.getValue0();
+			if (idClient2 == idClientA) {
+				distance = aux.getValue1();
+			}
+		}
+
+		return distance;
+	}
+
+	/**
+	 * Metodo que consulta las distancias en la matriz de distancias.
+	 * @return la suma de las distancias.
+	 */
+	@Benchmark
+	public long matrixDistance () {
+		DistanceMatrix distances = data.getDistances();
+		long sum = 0;
+
+		for (int k = 0; k < PAIRS; k++) {
+			sum += distances.distance(from[k], to[k]);
+		}
+
+		return sum;
+	}
+}
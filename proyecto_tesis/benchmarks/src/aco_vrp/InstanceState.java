@@ -0,0 +1,61 @@
+package aco_vrp;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Clase base de los benchmarks, que construye el ejemplar y el objeto VRP
+ * una sola vez por cada tamanio de ejemplar. Los benchmarks se tienen que
+ * ejecutar desde la carpeta proyecto_tesis para que se lean los archivos de
+ * la carpeta files.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public abstract class InstanceState {
+
+	/* Nombre del ejemplar, E15, E20, E30 o el numero de clientes de un
+	 * ejemplar sintetico. */
+	@Param({"E15", "E20", "E30", "100", "500", "1000"})
+	public String instance;
+
+	/* Ejemplar con el que se ejecuta el benchmark. */
+	protected Instance data;
+	/* Objeto VRP del ejemplar. */
+	protected VRP vrp;
+
+	/**
+	 * Metodo que construye el ejemplar y el objeto VRP.
+	 */
+	@Setup(Level.Trial)
+	public void setUpInstance () {
+		data = BenchmarkInstances.load(instance);
+		vrp = new VRP(data.getClients(), data.getDepot(), data.getDistances());
+		setUp();
+	}
+
+	/**
+	 * Metodo que prepara el estado propio de cada benchmark despues de
+	 * construir el ejemplar.
+	 */
+	protected abstract void setUp ();
+
+	/**
+	 * Metodo que regresa una ruta que sale del deposito, visita a los
+	 * clientes con indice de 1 a length en orden y regresa al deposito.
+	 * @param length el numero de clientes de la ruta.
+	 * @return la ruta.
+	 */
+	protected List<Client> route (int length) {
+		List<Client> clients = vrp.getClients();
+		List<Client> route = new ArrayList<Client>();
+		route.add(data.getDepot());
+		for (int i = 1; i <= Math.min(length, clients.size() - 1); i++) {
+			route.add(clients.get(i));
+		}
+		route.add(data.getDepot());
+		return route;
+	}
+}
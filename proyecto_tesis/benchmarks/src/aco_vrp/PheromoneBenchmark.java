@@ -0,0 +1,63 @@
+package aco_vrp;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/**
+ * Benchmark de las actualizaciones de la matriz de feromonas de una colonia.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PheromoneBenchmark extends InstanceState {
+
+	/* Numero de clientes de la ruta con la que se actualizan las feromonas. */
+	private static final int LENGTH = 10;
+
+	/* Colonia de hormigas del ejemplar. */
+	private ACO colony;
+	/* Ruta con la que se actualizan las feromonas. */
+	private List<Client> route;
+	/* Distancia de la ruta. */
+	private int distance;
+
+	@Override
+	protected void setUp () {
+		colony = vrp.getColony();
+		route = route(LENGTH);
+		distance = vrp.calculateDistance(route);
+	}
+
+	/**
+	 * Metodo que realiza la actualizacion local sobre las aristas de la ruta.
+	 */
+	@Benchmark
+	public void updateLP () {
+		colony.setVisitClient(route);
+		colony.updateLP();
+	}
+
+	/**
+	 * Metodo que realiza la actualizacion global con la ruta.
+	 */
+	@Benchmark
+	public void updateGP () {
+		colony.updateGP(route, distance);
+	}
+
+	/**
+	 * Metodo que realiza la evaporacion de todas las feromonas.
+	 */
+	@Benchmark
+	public void evaporateP () {
+		colony.evaporateP(0);
+	}
+}
@@ -0,0 +1,55 @@
+package aco_vrp;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/**
+ * Benchmark de la seleccion del siguiente cliente de una hormiga, desde el
+ * deposito y desde un cliente a la mitad de la ruta.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SelectionBenchmark extends InstanceState {
+
+	/* Colonia de hormigas del ejemplar. */
+	private ACO colony;
+	/* Hormiga que se encuentra en el deposito. */
+	private Ant atDepot;
+	/* Hormiga que ya visito a un cliente. */
+	private Ant onRoute;
+
+	@Override
+	protected void setUp () {
+		colony = vrp.getColony();
+		vrp.setUpVisits(colony);
+		atDepot = colony.getAnts().get(0);
+		onRoute = colony.getAnts().get(1);
+		onRoute.addCurrentClient(vrp.getClients().get(1));
+	}
+
+	/**
+	 * Metodo que selecciona al siguiente cliente desde el deposito.
+	 * @return el cliente seleccionado.
+	 */
+	@Benchmark
+	public Client selectFromDepot () {
+		return vrp.selectClientJ(colony, atDepot);
+	}
+
+	/**
+	 * Metodo que selecciona al siguiente cliente desde un cliente.
+	 * @return el cliente seleccionado.
+	 */
+	@Benchmark
+	public Client selectFromClient () {
+		return vrp.selectClientJ(colony, onRoute);
+	}
+}
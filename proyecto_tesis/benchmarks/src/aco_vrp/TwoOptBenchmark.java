@@ -0,0 +1,54 @@
+package aco_vrp;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/**
+ * Benchmark de la heuristica 2-opt sobre una ruta que visita a todos los
+ * clientes del ejemplar en un orden aleatorio. La ruta original no se
+ * modifica, por lo que cada invocacion mejora la misma ruta.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TwoOptBenchmark extends InstanceState {
+
+	/* Modo en el que se eligen los movimientos. */
+	@Param({"FIRST_IMPROVEMENT", "BEST_IMPROVEMENT"})
+	public TwoOpt.Mode mode;
+
+	/* Instancia de la heuristica 2-opt. */
+	private TwoOpt twoOpt;
+	/* Ruta que se mejora. */
+	private List<Client> route;
+	/* Distancia de la ruta. */
+	private int distance;
+
+	@Override
+	protected void setUp () {
+		twoOpt = new TwoOpt(vrp, mode);
+		route = route(vrp.getClients().size() - 1);
+		Collections.shuffle(route.subList(1, route.size() - 1), new Random(7));
+		distance = vrp.calculateDistance(route);
+	}
+
+	/**
+	 * Metodo que mejora la ruta con la heuristica 2-opt.
+	 * @return la ruta mejorada.
+	 */
+	@Benchmark
+	public List<Client> improveRoute () {
+		return twoOpt.improveRoute(route, distance);
+	}
+}
@@ -1,7 +1,11 @@
 package aco_vrp;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Clase que representa una colonia de hormigas.
@@ -20,10 +24,33 @@ public class ACO {
 	private List<List<Client>> bestRoutes; // Una sola ruta para cuando sea multiple la estrategia
 	/* Matriz de feromonas. */
 	private double[][] pheromones;
-	/* Matriz de clientes visitados. */
-	private Boolean[][] visitClient;
+	/* Matriz de la inversa de la distancia elevada a beta, compartida por 
+	 * todas las colonias del ejemplar. */
+	private double[][] heuristic;
+	/* Matriz del producto de las feromonas por la matriz heuristica. */
+	private double[][] choiceInfo;
+	/* Aristas recorridas desde la ultima actualizacion local, como i * n + j. */
+	private int[] visitEdges;
+	/* Numero de aristas recorridas desde la ultima actualizacion local. */
+	private int numVisitEdges;
+	/* Aristas recorridas desde la ultima actualizacion local, sin repetir. */
+	private BitSet visitClient;
 	/* Lista de Clientes. */
 	private List<Client> clients;
+	/* Numero de veces que fue visitado cada cliente por la colonia. */
+	private int[] visits;
+	/* Generador de numeros aleatorios de la colonia. */
+	private Random random;
+	/* Generador del que se separan los generadores de las hormigas cuando 
+	 * construyen sus rutas en paralelo. */
+	private SplittableRandom splittable;
+	/* Numero de soluciones completas que ha construido la colonia. */
+	private int iterations;
+	/* Estadisticas de la ejecucion. */
+	private SolverStats stats = SolverStats.DISABLED;
+	/* Tiempo de las actualizaciones de feromonas desde la ultima vez que se 
+	 * consulto, en nanosegundos. */
+	private long pheromoneTime;
 	
 	/**
 	 * Constructor que crea un objeto ACO.
@@ -38,6 +65,9 @@ public class ACO {
 		this.tau0 = tau0;
 		this.clients = clients;
 		bestRoutes = new ArrayList<List<Client>>();
+		visits = new int[clients.size()];
+		random = new Random();
+		splittable = new SplittableRandom(random.nextLong());
 		createAnts(m, Q, clients.get(0));
 		addPheromones(clients);
 	}
@@ -53,6 +83,7 @@ public class ACO {
 		
 		for(int i = 0; i < m; i++) {
 			Ant ant = new Ant(i, Q, depot);
+			ant.setRandom(random);
 			ants.add(ant);
 		}
 	}
@@ -64,7 +95,9 @@ public class ACO {
 	public void addPheromones (List<Client> clients) {
 		int n = clients.size();
 		pheromones = new double[n][n];
-		visitClient = new Boolean[n][n];
+		visitEdges = new int[16];
+		numVisitEdges = 0;
+		visitClient = new BitSet();
 		for(int i = 0; i < pheromones.length; i++){
 			for(int j = 0; j < pheromones.length; j++){
 				if(i != j){
@@ -72,14 +105,6 @@ public class ACO {
 		        }
 		    }
 		}
-		
-		for(int i = 0; i < visitClient.length; i++){
-			for(int j = 0; j < visitClient.length; j++){
-				if(i != j){
-					visitClient[i][j] = false;
-		        }
-		    }
-		}
 	}
 	
 	/**
@@ -98,6 +123,85 @@ public class ACO {
 		return bestRoutes;
 	}
 	
+	/**
+	 * Metodo que regresa el numero de veces que fue visitado cada cliente por 
+	 * la colonia, de acuerdo a su indice.
+	 * @return el numero de veces que fue visitado cada cliente.
+	 */
+	public int[] getVisits () {
+		return visits;
+	}
+	
+	/**
+	 * Metodo que regresa el generador de numeros aleatorios de la colonia.
+	 * @return el generador de numeros aleatorios de la colonia.
+	 */
+	public Random getRandom () {
+		return random;
+	}
+	
+	/**
+	 * Metodo que le asigna a cada hormiga su propio generador de numeros 
+	 * aleatorios, separado del generador de la colonia, para que las 
+	 * hormigas puedan construir sus rutas en paralelo.
+	 */
+	public void splitRandom () {
+		for (Ant ant : ants) {
+			ant.setRandom(splittable.split());
+		}
+	}
+	
+	/**
+	 * Metodo que regresa el numero de soluciones completas que ha construido 
+	 * la colonia.
+	 * @return el numero de soluciones completas de la colonia.
+	 */
+	public int getIterations () {
+		return iterations;
+	}
+	
+	/**
+	 * Metodo que registra que la colonia termino de construir una solucion.
+	 */
+	public void nextIteration () {
+		iterations++;
+	}
+	
+	/**
+	 * Metodo que asigna las estadisticas en las que la colonia cuenta las 
+	 * escrituras de feromonas.
+	 * @param stats las estadisticas de la ejecucion.
+	 */
+	public void setStats (SolverStats stats) {
+		this.stats = stats;
+	}
+	
+	/**
+	 * Metodo que suma el tiempo de una actualizacion de las feromonas.
+	 * @param nanos el tiempo de la actualizacion en nanosegundos.
+	 */
+	public void addPheromoneTime (long nanos) {
+		pheromoneTime += nanos;
+	}
+	
+	/**
+	 * Metodo que regresa el tiempo de las actualizaciones de las feromonas 
+	 * desde la ultima vez que se consulto, y lo reinicia.
+	 * @return el tiempo de las actualizaciones en nanosegundos.
+	 */
+	public long takePheromoneTime () {
+		long time = pheromoneTime;
+		pheromoneTime = 0;
+		return time;
+	}
+	
+	/**
+	 * Metodo que reinicia el numero de veces que fue visitado cada cliente.
+	 */
+	public void resetVisits () {
+		Arrays.fill(visits, 0);
+	}
+	
 	/**
 	 * Metodo que regresa la matriz de feromonas de la colonia.
 	 * @return la matriz de feromonas de la colonia.
@@ -107,11 +211,42 @@ public class ACO {
 	}
 	
 	/**
-	 * Metodo que regresa la matriz que indica si han sido visitados los clientes.
-	 * @return  la matriz que indica si han sido visitados los clientes.
+	 * Metodo que regresa la matriz del producto de las feromonas por la 
+	 * inversa de la distancia elevada a beta.
+	 * @return la matriz del producto de las feromonas por la inversa de la 
+	 * distancia elevada a beta.
 	 */
-	public Boolean[][] getVisitClient () {
-		return visitClient;
+	public double[][] getChoiceInfo () {
+		return choiceInfo;
+	}
+	
+	/**
+	 * Metodo que actualiza la matriz de la inversa de la distancia elevada a 
+	 * beta y vuelve a calcular la matriz del producto con las feromonas.
+	 * @param heuristic la matriz de la inversa de la distancia elevada a beta.
+	 */
+	public void setHeuristic (double[][] heuristic) {
+		this.heuristic = heuristic;
+		int n = pheromones.length;
+		choiceInfo = new double[n][n];
+		
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				updateChoiceInfo(i, j);
+			}
+		}
+	}
+	
+	/**
+	 * Metodo auxiliar que vuelve a calcular una entrada de la matriz del 
+	 * producto de las feromonas por la matriz heuristica.
+	 * @param i el indice del cliente i.
+	 * @param j el indice del cliente j.
+	 */
+	private void updateChoiceInfo (int i, int j) {
+		if (choiceInfo != null) {
+			choiceInfo[i][j] = pheromones[i][j] * heuristic[i][j];
+		}
 	}
 	
 	/**
@@ -139,8 +274,9 @@ public class ACO {
 	}
 	
 	/**
-	 * Metodo que actualiza la matriz que indica si han sido visitados los clientes.
-	 * @param visitClient la nueva matriz que indica si han sido visitados los clientes.
+	 * Metodo que agrega las aristas de la ruta, en ambos sentidos, a las 
+	 * aristas que se van a actualizar en la siguiente actualizacion local.
+	 * @param route la ruta recorrida por una hormiga.
 	 */
 	public void setVisitClient (List<Client> route) {
 		for (int i = 0; i < route.size(); i++){
@@ -149,51 +285,62 @@ public class ACO {
 				Client c2 = route.get(i + 1);
 				int indexC1 = getIndexClient(c1);
 				int indexC2 = getIndexClient(c2);
-				Boolean isVisited = visitClient[indexC1][indexC2];
-				if (!isVisited) {
-					visitClient[indexC1][indexC2] = true;
-					visitClient[indexC2][indexC1] = true;
+				if (indexC1 != indexC2) {
+					addVisitEdge(indexC1, indexC2);
+					addVisitEdge(indexC2, indexC1);
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Metodo auxiliar que agrega una arista a las aristas recorridas si aun 
+	 * no se encuentra en ellas.
+	 * @param i el indice del cliente i.
+	 * @param j el indice del cliente j.
+	 */
+	private void addVisitEdge (int i, int j) {
+		int edge = i * pheromones.length + j;
+		
+		if (!visitClient.get(edge)) {
+			visitClient.set(edge);
+			if (numVisitEdges == visitEdges.length) {
+				visitEdges = Arrays.copyOf(visitEdges, 2 * numVisitEdges);
+			}
+			visitEdges[numVisitEdges++] = edge;
+		}
+	}
+	
 	/**
 	 * Metodo que busca el indice del cliente en la lista de clientes.
 	 * @param client el cliente del que se quiere saber su indice.
 	 * @return el indice del cliente en la lista de clientes.
 	 */
 	public int getIndexClient(Client client) {
-		int idClient = client.getId();
-		int indexC = -1;
-		
-		for (int i = 0; i < clients.size(); i ++) {
-			Client c = clients.get(i);
-			int idC = c.getId();
-			if (idClient == idC) {
-				indexC = i;
-			}
-		}
-		
-		return indexC;
+		return client.getIndex();
 	}
 	
 	/**
-	 * Metodo que realiza la actualizacion local de las feromonas.
+	 * Metodo que realiza la actualizacion local de las feromonas sobre las 
+	 * aristas recorridas desde la ultima actualizacion local, y despues las 
+	 * olvida.
 	 */
 	public void updateLP () {
-		for (int i = 0; i < pheromones.length; i++){
-			for (int j = 0; j < pheromones.length; j++){
-				if (i != j){
-					Boolean isVisited = visitClient[i][j];
-					if (isVisited) {
-						double tauIJ = pheromones[i][j];
-						double newTauIJ = (1 - alpha) * tauIJ + (alpha * tau0);
-						pheromones[i][j] = newTauIJ;
-					}
-		        }
-		    }
+		int n = pheromones.length;
+		
+		for (int k = 0; k < numVisitEdges; k++) {
+			int edge = visitEdges[k];
+			int i = edge / n;
+			int j = edge % n;
+			double tauIJ = pheromones[i][j];
+			double newTauIJ = (1 - alpha) * tauIJ + (alpha * tau0);
+			pheromones[i][j] = newTauIJ;
+			updateChoiceInfo(i, j);
+			visitClient.clear(edge);
 		}
+		
+		stats.add(SolverStats.Counter.PHEROMONE_WRITES, numVisitEdges);
+		numVisitEdges = 0;
 	}
 	
 	/**
@@ -212,8 +359,12 @@ public class ACO {
 				double newTauIJ = (1 - alpha) * tauIJ + (alpha * (Math.pow(distance, -1)));
 				pheromones[indexC1][indexC2] = newTauIJ;
 				pheromones[indexC2][indexC1] = newTauIJ;
+				updateChoiceInfo(indexC1, indexC2);
+				updateChoiceInfo(indexC2, indexC1);
 			}
 		}
+		
+		stats.add(SolverStats.Counter.PHEROMONE_WRITES, 2 * Math.max(0, bestRoute.size() - 1));
 	}
 	
 	/**
@@ -225,9 +376,12 @@ public class ACO {
 			for (int j = 0; j < pheromones.length; j++){
 				if (i != j){
 					pheromones[i][j] += delta;
+					updateChoiceInfo(i, j);
 		        }
 		    }
 		}
+		
+		stats.add(SolverStats.Counter.PHEROMONE_WRITES, (long) pheromones.length * (pheromones.length - 1));
 	}
 	
 }
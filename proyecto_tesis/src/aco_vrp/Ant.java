@@ -1,7 +1,9 @@
 package aco_vrp;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 /**
  * Clase que representa una hormiga. 
@@ -16,10 +18,19 @@ public class Ant {
 	private int capacity;
 	/* Cliente actual en el que se encuentra la hormiga. */
 	private Client currentClient;
-	/* Memoria de la hormiga. */
+	/* Memoria de la hormiga, los clientes en el orden en que los visito. */
 	private List<Client> memory;
+	/* Clientes de la memoria de la hormiga de acuerdo a su indice. */
+	private BitSet visited;
 	/* Bandera que indica si la hormiga ya termino su ruta. */
 	private Boolean finish;
+	/* Suma acumulada del atractivo de los clientes de la ruleta. */
+	private double[] cumulative;
+	/* Indices de los clientes de la ruleta. */
+	private int[] wheel;
+	/* Generador de numeros aleatorios con el que la hormiga elige a los 
+	 * clientes. */
+	private RandomGenerator random;
 	
 	/**
 	 * Constructor que crea un objeto Ant.
@@ -31,7 +42,9 @@ public class Ant {
 		this.capacity = capacity;
 		this.currentClient = currentClient;
 		memory = new ArrayList<Client>();
+		visited = new BitSet();
 		memory.add(currentClient);
+		markVisited(currentClient);
 		finish = false;
 	}
 	
@@ -43,6 +56,22 @@ public class Ant {
 		return id;
 	}
 	
+	/**
+	 * Metodo que regresa el generador de numeros aleatorios de la hormiga.
+	 * @return el generador de numeros aleatorios de la hormiga.
+	 */
+	public RandomGenerator getRandom () {
+		return random;
+	}
+	
+	/**
+	 * Metodo que actualiza el generador de numeros aleatorios de la hormiga.
+	 * @param random el nuevo generador de numeros aleatorios de la hormiga.
+	 */
+	public void setRandom (RandomGenerator random) {
+		this.random = random;
+	}
+	
 	/**
 	 * Metodo que regresa la capacidad de la hormiga.
 	 * @return la capacidad de la hormiga.
@@ -67,6 +96,16 @@ public class Ant {
 		return memory;
 	}
 	
+	/**
+	 * Metodo que indica si el cliente pertenece a la memoria de la hormiga.
+	 * @param client el cliente.
+	 * @return true si el cliente pertenece a la memoria de la hormiga, false 
+	 * en otro caso.
+	 */
+	public Boolean isVisited (Client client) {
+		return visited.get(client.getIndex());
+	}
+	
 	/**
 	 * Metodo que indica si la hormiga ya completó su ruta.
 	 * @return true si la hormiga ya termino su ruta, false en otro caso.
@@ -75,6 +114,34 @@ public class Ant {
 		return finish;
 	}
 	
+	/**
+	 * Metodo que regresa el arreglo donde se guarda la suma acumulada del 
+	 * atractivo de los clientes de la ruleta. El arreglo se reutiliza en cada 
+	 * paso de la construccion de la ruta.
+	 * @param n el numero de clientes del ejemplar.
+	 * @return el arreglo de la suma acumulada del atractivo.
+	 */
+	public double[] getCumulative (int n) {
+		if (cumulative == null || cumulative.length != n) {
+			cumulative = new double[n];
+		}
+		return cumulative;
+	}
+	
+	/**
+	 * Metodo que regresa el arreglo donde se guardan los indices de los 
+	 * clientes de la ruleta. El arreglo se reutiliza en cada paso de la 
+	 * construccion de la ruta.
+	 * @param n el numero de clientes del ejemplar.
+	 * @return el arreglo de los indices de los clientes de la ruleta.
+	 */
+	public int[] getWheel (int n) {
+		if (wheel == null || wheel.length != n) {
+			wheel = new int[n];
+		}
+		return wheel;
+	}
+	
 	/**
 	 * Metodo que regresa la capacidad de la hormiga.
 	 * @return la capacidad de la hormiga.
@@ -89,6 +156,10 @@ public class Ant {
 	 */
 	public void setMemory (List<Client> memory) {
 		this.memory = memory;
+		visited.clear();
+		for (Client client : memory) {
+			markVisited(client);
+		}
 	}
 	
 	/**
@@ -106,7 +177,35 @@ public class Ant {
 	public void addCurrentClient (Client currentClient) {
 		this.currentClient = currentClient;
 		memory.add(currentClient);
+		markVisited(currentClient);
 		int demand = currentClient.getDemand();
 		capacity -= demand;
 	}
+	
+	/**
+	 * Metodo que regresa a la hormiga al deposito para que construya una 
+	 * nueva ruta, reutilizando su memoria.
+	 * @param capacity la capacidad de carga de la hormiga.
+	 * @param depot el deposito.
+	 */
+	public void reset (int capacity, Client depot) {
+		this.capacity = capacity;
+		currentClient = depot;
+		memory.clear();
+		visited.clear();
+		memory.add(depot);
+		markVisited(depot);
+		finish = false;
+	}
+	
+	/**
+	 * Metodo auxiliar que marca al cliente como parte de la memoria.
+	 * @param client el cliente.
+	 */
+	private void markVisited (Client client) {
+		int index = client.getIndex();
+		if (index >= 0) {
+			visited.set(index);
+		}
+	}
 }
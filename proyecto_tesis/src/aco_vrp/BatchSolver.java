@@ -0,0 +1,456 @@
+package aco_vrp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.javatuples.Pair;
+
+/**
+ * Clase que resuelve varios archivos de pedidos en la misma ejecucion. Los
+ * clientes y las distancias de la union de todos los archivos se obtienen
+ * una sola vez, de la copia binaria o de la base de datos, y cada ejemplar
+ * recibe sus propios clientes y su submatriz de distancias, por lo que los
+ * ejemplares se resuelven en paralelo sin compartir estado.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class BatchSolver {
+
+	/**
+	 * Clase que representa el resultado de uno de los ejemplares del lote.
+	 */
+	public static class Result {
+
+		/* Nombre del ejemplar, el nombre de su archivo sin extension. */
+		private String name;
+		/* Numero de clientes del ejemplar, sin contar al deposito. */
+		private int clients;
+		/* Demanda total de los clientes. */
+		private int demand;
+		/* Numero de rutas encontradas. */
+		private int routes;
+		/* Distancia total de las rutas encontradas. */
+		private int distance;
+		/* Tiempo para construir el ejemplar y prepararlo, en nanosegundos. */
+		private long setupTime;
+		/* Tiempo de la busqueda, en nanosegundos. */
+		private long solveTime;
+		/* Mensaje de error, null si el ejemplar se resolvio. */
+		private String error;
+
+		/**
+		 * Constructor que crea un objeto Result.
+		 * @param name el nombre del ejemplar.
+		 */
+		public Result (String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Metodo que regresa el nombre del ejemplar.
+		 * @return el nombre del ejemplar.
+		 */
+		public String getName () {
+			return name;
+		}
+
+		/**
+		 * Metodo que regresa el numero de clientes del ejemplar.
+		 * @return el numero de clientes, sin contar al deposito.
+		 */
+		public int getClients () {
+			return clients;
+		}
+
+		/**
+		 * Metodo que regresa la demanda total de los clientes.
+		 * @return la demanda total de los clientes.
+		 */
+		public int getDemand () {
+			return demand;
+		}
+
+		/**
+		 * Metodo que regresa el numero de rutas encontradas.
+		 * @return el numero de rutas encontradas.
+		 */
+		public int getRoutes () {
+			return routes;
+		}
+
+		/**
+		 * Metodo que regresa la distancia total de las rutas encontradas.
+		 * @return la distancia total de las rutas encontradas.
+		 */
+		public int getDistance () {
+			return distance;
+		}
+
+		/**
+		 * Metodo que regresa el tiempo para construir y preparar el ejemplar.
+		 * @return el tiempo en nanosegundos.
+		 */
+		public long getSetupTime () {
+			return setupTime;
+		}
+
+		/**
+		 * Metodo que regresa el tiempo de la busqueda.
+		 * @return el tiempo en nanosegundos.
+		 */
+		public long getSolveTime () {
+			return solveTime;
+		}
+
+		/**
+		 * Metodo que regresa el error del ejemplar.
+		 * @return el mensaje de error, null si el ejemplar se resolvio.
+		 */
+		public String getError () {
+			return error;
+		}
+	}
+
+	/* Archivos de pedidos del lote. */
+	private List<File> files;
+	/* Copias binarias de los ejemplares, null si no se usan. */
+	private InstanceSnapshot snapshot;
+	/* Numero maximo de ejemplares que se resuelven al mismo tiempo. */
+	private int workers;
+	/* Carpeta en la que se escriben las rutas de cada ejemplar. */
+	private File results;
+	/* Formato de las rutas de cada ejemplar. */
+	private SolutionWriter.Format format;
+	/* Numero de ciudades de la union de los archivos. */
+	private int unionSize;
+	/* Tiempo para obtener la union de los archivos, en nanosegundos. */
+	private long loadTime;
+	/* Tiempo total del lote, en nanosegundos. */
+	private long totalTime;
+
+	/**
+	 * Constructor que crea un objeto BatchSolver.
+	 * @param files los archivos de pedidos.
+	 * @param snapshot las copias binarias de los ejemplares, null si no se
+	 * leen ni se guardan copias.
+	 * @param workers el numero maximo de ejemplares que se resuelven al mismo
+	 * tiempo.
+	 * @param results la carpeta en la que se escriben las rutas de cada
+	 * ejemplar.
+	 * @param format el formato de las rutas de cada ejemplar.
+	 */
+	public BatchSolver (List<File> files, InstanceSnapshot snapshot, int workers, File results,
+			            SolutionWriter.Format format) {
+		this.files = files;
+		this.snapshot = snapshot;
+		this.workers = Math.max(1, workers);
+		this.results = results;
+		this.format = format;
+	}
+
+	/**
+	 * Metodo que obtiene los archivos de pedidos del lote. Si la ruta es una
+	 * carpeta se usan todos sus archivos .txt en orden alfabetico; si es un
+	 * archivo, cada renglon es la ruta de un archivo de pedidos, relativa a
+	 * la carpeta del manifiesto, y se ignoran los renglones vacios y los que
+	 * empiezan con #.
+	 * @param path la carpeta o el manifiesto.
+	 * @return los archivos de pedidos.
+	 * @throws IOException si ocurre un error al leer el manifiesto.
+	 */
+	public static List<File> listFiles (File path) throws IOException {
+		List<File> files = new ArrayList<File>();
+
+		if (path.isDirectory()) {
+			File[] found = path.listFiles((dir, name) -> name.endsWith(".txt"));
+			if (found != null) {
+				Arrays.sort(found);
+				files.addAll(Arrays.asList(found));
+			}
+			return files;
+		}
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+			String line = reader.readLine();
+
+			while (line != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					File file = new File(line);
+					files.add(file.isAbsolute() ? file : new File(path.getAbsoluteFile().getParentFile(), line));
+				}
+				line = reader.readLine();
+			}
+		}
+
+		return files;
+	}
+
+	/**
+	 * Metodo que resuelve todos los ejemplares del lote. Las rutas de cada
+	 * ejemplar se escriben en la carpeta de resultados, en un archivo con el
+	 * nombre del ejemplar y la extension del formato. Un ejemplar que no se
+	 * puede leer o construir se reporta en su resultado sin detener el lote.
+	 * @param strategy el numero de la estrategia.
+	 * @param lengthLC la longitud de las listas de candidatos.
+	 * @param configure la configuracion que se aplica a cada ejemplar antes
+	 * de resolverlo.
+	 * @return los resultados de los ejemplares, en el orden de los archivos.
+	 * @throws IOException si ocurre un error al leer la copia binaria.
+	 * @throws SQLException si ocurre un error al acceder a la base de datos.
+	 */
+	public List<Result> solve (int strategy, int lengthLC, Consumer<VRP> configure)
+			throws IOException, SQLException {
+		long start = System.nanoTime();
+		List<Result> resultsList = new ArrayList<Result>();
+		List<Pair<List<Integer>, List<Integer>>> orders = new ArrayList<Pair<List<Integer>, List<Integer>>>();
+		Map<Integer, Integer> union = new LinkedHashMap<Integer, Integer>();
+
+		for (File file : files) {
+			Result result = new Result(name(file));
+			resultsList.add(result);
+			try {
+				Pair<List<Integer>, List<Integer>> order = OrdersSource.readOrders(file);
+				orders.add(order);
+				for (Integer id : order.getValue0()) {
+					union.putIfAbsent(id, union.size());
+				}
+			} catch (IOException e) {
+				orders.add(null);
+				result.error = e.getMessage();
+			}
+		}
+
+		results.mkdirs();
+		if (union.isEmpty()) {
+			totalTime = System.nanoTime() - start;
+			return resultsList;
+		}
+
+		Instance cities = loadUnion(new ArrayList<Integer>(union.keySet()));
+		Map<Integer, Integer> indexes = new HashMap<Integer, Integer>();
+		for (int i = 0; i < cities.getClients().size(); i++) {
+			indexes.put(cities.getClients().get(i).getId(), i);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		List<Future<?>> tasks = new ArrayList<Future<?>>();
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				Result result = resultsList.get(i);
+				Pair<List<Integer>, List<Integer>> order = orders.get(i);
+				if (order != null) {
+					tasks.add(executor.submit(() -> {
+						try {
+							solveInstance(result, order, cities, indexes, strategy, lengthLC, configure);
+						} catch (RuntimeException e) {
+							result.error = e.toString();
+						}
+					}));
+				}
+			}
+
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			System.err.println("Error al resolver el lote: " + e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		totalTime = System.nanoTime() - start;
+		return resultsList;
+	}
+
+	/**
+	 * Metodo auxiliar que obtiene los clientes y la matriz de distancias de
+	 * la union de los archivos, con una sola consulta de cada tipo a la base
+	 * de datos si no hay copia binaria. Los clientes que no estan en la base
+	 * de datos no forman parte de la union, y los ejemplares que los usan se
+	 * reportan con un error.
+	 */
+	private Instance loadUnion (List<Integer> IDs) throws IOException, SQLException {
+		long start = System.nanoTime();
+		List<Integer> demands = new ArrayList<Integer>(IDs.size());
+
+		for (int i = 0; i < IDs.size(); i++) {
+			demands.add(0);
+		}
+
+		OrdersSource source = new OrdersSource(IDs, demands, snapshot);
+		try {
+			Instance instance = source.load();
+			instance.getDistances();
+			unionSize = instance.getClients().size();
+			loadTime = System.nanoTime() - start;
+			return instance;
+		} finally {
+			source.close();
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que construye un ejemplar con sus propios clientes y su
+	 * submatriz de distancias, lo resuelve y guarda su resultado. Los indices
+	 * son las posiciones de los clientes en la union que se cargo.
+	 */
+	private void solveInstance (Result result, Pair<List<Integer>, List<Integer>> order, Instance cities,
+			                    Map<Integer, Integer> indexes, int strategy, int lengthLC,
+			                    Consumer<VRP> configure) {
+		long start = System.nanoTime();
+		List<Integer> IDs = order.getValue0();
+		List<Integer> demands = order.getValue1();
+		int n = IDs.size();
+		int depot = demands.indexOf(0);
+
+		if (depot < 0) {
+			result.error = "El ejemplar no tiene un deposito con demanda 0.";
+			return;
+		}
+
+		/* El deposito va primero y los demas clientes en el orden del archivo. */
+		int[] positions = new int[n];
+		positions[0] = depot;
+		for (int i = 0, k = 1; i < n; i++) {
+			if (i != depot) {
+				positions[k++] = i;
+			}
+		}
+
+		List<Integer> missing = new ArrayList<Integer>();
+		for (Integer id : IDs) {
+			if (!indexes.containsKey(id)) {
+				missing.add(id);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			result.error = "Los clientes " + missing + " no estan en la base de datos.";
+			return;
+		}
+
+		List<Client> clients = new ArrayList<Client>(n);
+		int[] rows = new int[n];
+		for (int k = 0; k < n; k++) {
+			int id = IDs.get(positions[k]);
+			int demand = demands.get(positions[k]);
+			Client city = cities.getClients().get(indexes.get(id));
+			Client client = new Client(id, city.getCity(), city.getState());
+			client.setDemand(demand);
+			client.setIsDepot(k == 0);
+			clients.add(client);
+			rows[k] = indexes.get(id);
+			result.demand += demand;
+		}
+
+		DistanceMatrix all = cities.getDistances();
+		int[] distances = new int[n * n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				distances[i * n + j] = all.distance(rows[i], rows[j]);
+			}
+		}
+
+		VRP v = new VRP(clients, clients.get(0), new DistanceMatrix(n, distances));
+		configure.accept(v);
+		result.clients = n - 1;
+
+		File file = new File(results, result.name + "." + format.name().toLowerCase());
+		try (OutputStream stream = new FileOutputStream(file)) {
+			v.setWriter(SolutionWriter.create(format, stream));
+			long search = System.nanoTime();
+			result.setupTime = search - start;
+			v.vrp(strategy, lengthLC);
+			result.solveTime = System.nanoTime() - search;
+		} catch (IOException e) {
+			result.error = "No se pudieron escribir las rutas en " + file + ".";
+			return;
+		}
+
+		List<List<Client>> solution = v.getSolution();
+		if (solution != null) {
+			result.routes = solution.size();
+			for (List<Client> route : solution) {
+				result.distance += v.calculateDistance(route);
+			}
+		}
+	}
+
+	/**
+	 * Metodo que convierte los resultados del lote en una tabla.
+	 * @param resultsList los resultados de los ejemplares.
+	 * @return la tabla de resultados en String.
+	 */
+	public String summary (List<Result> resultsList) {
+		StringBuilder r = new StringBuilder();
+		r.append(String.format(Locale.ROOT, "Resumen del lote: %d ejemplares, %d ciudades cargadas en %.3f ms, %d hilos%n%n",
+				               resultsList.size(), unionSize, loadTime / 1e6, workers));
+		r.append(String.format(Locale.ROOT, "%-20s %9s %9s %6s %10s %17s %14s%n", "Ejemplar", "Clientes", "Demanda",
+				               "Rutas", "Distancia", "Preparacion (ms)", "Busqueda (ms)"));
+
+		for (Result result : resultsList) {
+			if (result.error != null) {
+				r.append(String.format(Locale.ROOT, "%-20s Error: %s%n", result.name, result.error));
+			} else {
+				r.append(String.format(Locale.ROOT, "%-20s %9d %9d %6d %10d %17.3f %14.3f%n", result.name,
+						               result.clients, result.demand, result.routes, result.distance,
+						               result.setupTime / 1e6, result.solveTime / 1e6));
+			}
+		}
+
+		r.append(String.format(Locale.ROOT, "%nTiempo total del lote: %.3f ms%n", totalTime / 1e6));
+		return r.toString();
+	}
+
+	/**
+	 * Metodo que escribe los resultados del lote en CSV, un renglon por
+	 * ejemplar, en la carpeta de resultados.
+	 * @param resultsList los resultados de los ejemplares.
+	 * @return el archivo en el que se escribieron los resultados.
+	 * @throws IOException si ocurre un error al escribir el archivo.
+	 */
+	public File writeSummary (List<Result> resultsList) throws IOException {
+		File file = new File(results, "summary.csv");
+
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+			writer.write("instance,clients,demand,routes,distance,setup_ms,solve_ms,error\n");
+			for (Result result : resultsList) {
+				writer.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.3f,%.3f,%s%n", result.name, result.clients,
+						                   result.demand, result.routes, result.distance,
+						                   result.setupTime / 1e6, result.solveTime / 1e6,
+						                   result.error == null ? "" : "\"" + result.error.replace("\"", "\"\"") + "\""));
+			}
+		}
+
+		return file;
+	}
+
+	/**
+	 * Metodo auxiliar que regresa el nombre del ejemplar a partir del nombre
+	 * de su archivo, sin extension.
+	 */
+	private static String name (File file) {
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+}
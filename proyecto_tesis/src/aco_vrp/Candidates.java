@@ -1,22 +1,32 @@
 package aco_vrp;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Comparator;
-
-import org.javatuples.Pair;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
 
 /**
- * Clase que se encarga de construir las listas de candidatos para todos 
- * los clientes. 
+ * Clase que se encarga de construir las listas de candidatos para todos
+ * los clientes. Los candidatos de cada cliente se eligen de la matriz de
+ * distancias con un monticulo de tamanio acotado, sin modificar las listas
+ * de distancias de los clientes, y las listas de un ejemplar se guardan para
+ * no volver a construirlas.
  * @author Teresa Becerril Torres
  * @version 1.0
  */
 public class Candidates {
 
+	/* Listas de vecinos ya construidas para cada matriz de distancias, de
+	 * acuerdo a la longitud de las listas y al deposito. */
+	private static final Map<DistanceMatrix, Map<Long, int[][]>> cache =
+			Collections.synchronizedMap(new WeakHashMap<DistanceMatrix, Map<Long, int[][]>>());
+
 	/* Longitud de la lista de candidatos. */
 	private int length;
-	
+
 	/**
 	 * Constructor que crea un objeto Candidates.
 	 * @param length la longitud de la lista de candidato.
@@ -24,47 +34,154 @@ public class Candidates {
 	public Candidates (int length) {
 		this.length = length;
 	}
-	
+
 	/**
-	 * Metodo que obtine y actualiza la lista de candidatos para cada uno de 
+	 * Metodo que obtine y actualiza la lista de candidatos para cada uno de
 	 * los clientes.
 	 * @param clients la lista de clientes.
+	 * @param distances la matriz de distancias del ejemplar.
 	 */
-	public void obtainCandidates (List<Client> clients) {
+	public void obtainCandidates (List<Client> clients, DistanceMatrix distances) {
 		Client depot = clients.get(0);
-		for (Client client: clients) {
-			List<Integer> candidates = searchCandidates(client, depot);
-			client.setCandidates(candidates);
+		int[][] neighbours = obtainNeighbours(distances, depot.getIndex());
+
+		for (int i = 0; i < clients.size(); i++) {
+			List<Integer> candidates = new ArrayList<Integer>(neighbours[i].length);
+			for (int j : neighbours[i]) {
+				candidates.add(clients.get(j).getId());
+			}
+			clients.get(i).setCandidates(candidates);
+		}
+	}
+
+	/**
+	 * Metodo que obtiene los indices de los clientes mas cercanos a cada
+	 * cliente, ordenados por distancia y, con la misma distancia, por indice,
+	 * sin incluir al cliente ni al deposito. Las listas de cada cliente se
+	 * construyen en paralelo y se guardan para la matriz de distancias.
+	 * @param distances la matriz de distancias del ejemplar.
+	 * @param depot el indice del deposito.
+	 * @return los indices de los vecinos mas cercanos de cada cliente.
+	 */
+	public int[][] obtainNeighbours (DistanceMatrix distances, int depot) {
+		long key = ((long) length << 32) | (depot & 0xffffffffL);
+		Map<Long, int[][]> lists;
+
+		synchronized (cache) {
+			lists = cache.get(distances);
+			if (lists == null) {
+				lists = new HashMap<Long, int[][]>();
+				cache.put(distances, lists);
+			}
+		}
+
+		synchronized (lists) {
+			int[][] neighbours = lists.get(key);
+			if (neighbours == null) {
+				int[][] result = new int[distances.size()][];
+				IntStream.range(0, result.length).parallel()
+				         .forEach(i -> result[i] = searchCandidates(distances, i, depot));
+				neighbours = result;
+				lists.put(key, neighbours);
+			}
+			return neighbours;
+		}
+	}
+
+	/**
+	 * Metodo que busca los indices de los clientes mas cercanos al cliente i.
+	 * Se recorre el renglon de la matriz una sola vez guardando los mejores
+	 * candidatos en un monticulo, cuya raiz es el peor de ellos.
+	 * @param distances la matriz de distancias del ejemplar.
+	 * @param i el indice del cliente.
+	 * @param depot el indice del deposito, que no se incluye en la lista.
+	 * @return los indices de los candidatos ordenados del mas cercano al mas
+	 * lejano.
+	 */
+	public int[] searchCandidates (DistanceMatrix distances, int i, int depot) {
+		int n = distances.size();
+		int[] heap = new int[Math.max(0, Math.min(length, n))];
+		int size = 0;
+
+		for (int j = 0; j < n; j++) {
+			if (j == i || j == depot || heap.length == 0) {
+				continue;
+			}
+			if (size < heap.length) {
+				heap[size] = j;
+				siftUp(distances, i, heap, size);
+				size++;
+			} else if (closer(distances, i, j, heap[0])) {
+				heap[0] = j;
+				siftDown(distances, i, heap, 0, size);
+			}
 		}
+
+		int[] candidates = new int[size];
+		for (int k = size - 1; k >= 0; k--) {
+			candidates[k] = heap[0];
+			heap[0] = heap[k];
+			siftDown(distances, i, heap, 0, k);
+		}
+
+		return candidates;
 	}
-	
+
+	/**
+	 * Metodo que regresa los indices de todos los clientes, sin incluir al
+	 * cliente i, ordenados por su distancia al cliente i.
+	 * @param distances la matriz de distancias del ejemplar.
+	 * @param i el indice del cliente.
+	 * @return los indices de los clientes ordenados por distancia.
+	 */
+	public static int[] order (DistanceMatrix distances, int i) {
+		Candidates all = new Candidates(distances.size());
+		return all.searchCandidates(distances, i, -1);
+	}
+
 	/**
-	 * Metodo que busca la lista de candidatos del cliente.
-	 * @param client el cliente al que se le busca la lista de candidatos.
-	 * @param depot el deposito.
-	 * @return la lista de candidatos del cliente.
+	 * Metodo auxiliar que indica si el cliente a esta mas cerca del cliente i
+	 * que el cliente b, desempatando por indice.
 	 */
-	public List<Integer> searchCandidates(Client client, Client depot) {
-		List<Pair<Integer, Integer>> distances = client.getDistances();
-		List<Integer> candidates = new ArrayList<Integer>();
-		
-		distances.sort(new Comparator<Pair<Integer, Integer>> () {
-			@Override 
-			public int compare (Pair<Integer, Integer> p1, Pair<Integer, Integer> p2) {
-				return p1.getValue1() - p2.getValue1();
+	private static boolean closer (DistanceMatrix distances, int i, int a, int b) {
+		int da = distances.distance(i, a);
+		int db = distances.distance(i, b);
+		return da < db || (da == db && a < b);
+	}
+
+	/**
+	 * Metodo auxiliar que sube el elemento k del monticulo hasta su lugar.
+	 */
+	private static void siftUp (DistanceMatrix distances, int i, int[] heap, int k) {
+		int c = heap[k];
+		while (k > 0) {
+			int parent = (k - 1) / 2;
+			if (!closer(distances, i, heap[parent], c)) {
+				break;
 			}
-		});
-		
-		for (int i = 0; i < distances.size() ; i++) {
-			int idClient = distances.get(i).getValue0();
-			if (idClient != depot.getId()) {
-				candidates.add(idClient);
+			heap[k] = heap[parent];
+			k = parent;
+		}
+		heap[k] = c;
+	}
+
+	/**
+	 * Metodo auxiliar que baja el elemento k del monticulo de tamanio size
+	 * hasta su lugar.
+	 */
+	private static void siftDown (DistanceMatrix distances, int i, int[] heap, int k, int size) {
+		int c = heap[k];
+		while (2 * k + 1 < size) {
+			int child = 2 * k + 1;
+			if (child + 1 < size && closer(distances, i, heap[child], heap[child + 1])) {
+				child++;
 			}
-			if(candidates.size() == length) {
+			if (!closer(distances, i, c, heap[child])) {
 				break;
 			}
+			heap[k] = heap[child];
+			k = child;
 		}
-		
-		return  candidates;
+		heap[k] = c;
 	}
 }
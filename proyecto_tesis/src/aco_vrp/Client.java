@@ -13,6 +13,8 @@ public class Client {
 
 	/* ID del cliente. */
 	private int id;
+	/* Indice del cliente en la lista de clientes del ejemplar. */
+	private int index;
 	/* Ciudad del cliente. */
 	private String city;
 	/* Estado del cliente. */
@@ -25,6 +27,10 @@ public class Client {
 	private List<Integer> candidates;
 	/* Lista de distancias del cliente con la siguiente forma [ID, distancia] */
 	private List<Pair<Integer, Integer>> distances;
+	/* Coordenada x del cliente, null si no se conocen sus coordenadas. */
+	private Double x;
+	/* Coordenada y del cliente, null si no se conocen sus coordenadas. */
+	private Double y;
 	
 	/**
 	 * Constructor que crea un objeto Client.
@@ -36,6 +42,7 @@ public class Client {
 		this.id = id;
 		this.city = city;
 		this.state = state;
+		index = -1;
 		demand = -1;
 		isDepot = false;
 		candidates = new ArrayList<Integer>();
@@ -50,6 +57,14 @@ public class Client {
 		return id;
 	}
 	
+	/**
+	 * Metodo que regresa el indice del cliente en la lista de clientes.
+	 * @return el indice del cliente en la lista de clientes.
+	 */
+	public int getIndex () {
+		return index;
+	}
+	
 	/**
 	 * Metodo que regresa la ciudad del cliente.
 	 * @return la ciudad del cliente.
@@ -82,6 +97,24 @@ public class Client {
 		return isDepot;
 	}
 	
+	/**
+	 * Metodo que regresa la coordenada x del cliente.
+	 * @return la coordenada x del cliente, null si no se conocen sus 
+	 * coordenadas.
+	 */
+	public Double getX () {
+		return x;
+	}
+	
+	/**
+	 * Metodo que regresa la coordenada y del cliente.
+	 * @return la coordenada y del cliente, null si no se conocen sus 
+	 * coordenadas.
+	 */
+	public Double getY () {
+		return y;
+	}
+	
 	/**
 	 * Metodo que regresa la lista de candidatos del cliente.
 	 * @return la lista de candidatos del cliente.
@@ -98,6 +131,14 @@ public class Client {
 		return distances;
 	}
 	
+	/**
+	 * Metodo que actualiza el indice del cliente en la lista de clientes.
+	 * @param index el nuevo indice del cliente.
+	 */
+	public void setIndex (int index) {
+		this.index = index;
+	}
+	
 	/**
 	 * Metodo que actualiza la demanda del cliente.
 	 * @param demand la nueva demanda del cliente.
@@ -115,6 +156,16 @@ public class Client {
 		this.isDepot = isDepot;
 	}
 	
+	/**
+	 * Metodo que actualiza las coordenadas del cliente.
+	 * @param x la nueva coordenada x del cliente.
+	 * @param y la nueva coordenada y del cliente.
+	 */
+	public void setCoordinates (double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+	
 	/**
 	 * Metodo que actualiza la lista de candidatos del cliente.
 	 * @param candidates la nueva lista de candidatos del cliente.
@@ -130,22 +181,4 @@ public class Client {
 	public void setDistances (List<Pair<Integer, Integer>> distances) {
 		this.distances = distances;
 	}
-	
-	/**
-	 * Metodo que busca la distancia entre el cliente y el cliente 2. 
-	 * @param idClient2 el id del cliente 2.
-	 * @return la distancia entre el cliente y el client2.  
-	 */
-	public int searchDistance (int idClient2) {
-		int distance = 0;
-		
-		for (Pair<Integer, Integer> aux : distances) {
-			int idClientA = aux.getValue0();
-			if (idClient2 == idClientA) {
-				distance = aux.getValue1();
-			}
-		}
-		
-		return distance;
-	}
 }
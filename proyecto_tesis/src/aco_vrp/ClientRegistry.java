@@ -0,0 +1,72 @@
+package aco_vrp;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clase que asigna a cada cliente del ejemplar un indice denso, el cual
+ * corresponde a su posicion en la lista de clientes, y que permite buscar
+ * a los clientes por su ID en tiempo constante.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class ClientRegistry {
+
+	/* Lista de clientes del ejemplar. */
+	private List<Client> clients;
+	/* Indices de los clientes de acuerdo a su ID. */
+	private Map<Integer, Integer> indexes;
+
+	/**
+	 * Constructor que crea un objeto ClientRegistry y actualiza el indice
+	 * de cada uno de los clientes.
+	 * @param clients la lista de clientes del ejemplar.
+	 */
+	public ClientRegistry (List<Client> clients) {
+		this.clients = clients;
+		indexes = new HashMap<Integer, Integer>();
+
+		for (int i = 0; i < clients.size(); i++) {
+			Client client = clients.get(i);
+			client.setIndex(i);
+			indexes.put(client.getId(), i);
+		}
+	}
+
+	/**
+	 * Metodo que regresa la lista de clientes del ejemplar.
+	 * @return la lista de clientes del ejemplar.
+	 */
+	public List<Client> getClients () {
+		return clients;
+	}
+
+	/**
+	 * Metodo que regresa el numero de clientes del ejemplar.
+	 * @return el numero de clientes del ejemplar.
+	 */
+	public int size () {
+		return clients.size();
+	}
+
+	/**
+	 * Metodo que regresa el indice del cliente que tiene ese ID.
+	 * @param idClient el ID del cliente.
+	 * @return el indice del cliente, -1 si no pertenece al ejemplar.
+	 */
+	public int getIndex (int idClient) {
+		Integer index = indexes.get(idClient);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Metodo que regresa el cliente que tiene ese ID.
+	 * @param idClient el ID del cliente.
+	 * @return el cliente que tiene ese ID, null si no pertenece al ejemplar.
+	 */
+	public Client getClient (int idClient) {
+		Integer index = indexes.get(idClient);
+		return index == null ? null : clients.get(index);
+	}
+}
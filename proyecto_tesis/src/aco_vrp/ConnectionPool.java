@@ -0,0 +1,99 @@
+package aco_vrp;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Clase que mantiene un numero fijo de conexiones con la base de datos para
+ * que se puedan reutilizar, en lugar de abrir y cerrar una conexion en cada
+ * consulta. Las conexiones se abren la primera vez que se solicitan.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class ConnectionPool {
+
+	/* Conectores que no estan en uso. */
+	private BlockingQueue<Connector> idle;
+	/* Todos los conectores del pool. */
+	private List<Connector> connectors;
+
+	/**
+	 * Constructor que crea un objeto ConnectionPool.
+	 * @param size el numero de conexiones del pool.
+	 */
+	public ConnectionPool (int size) {
+		idle = new ArrayBlockingQueue<Connector>(size);
+		connectors = new ArrayList<Connector>(size);
+
+		for (int i = 0; i < size; i++) {
+			Connector connector = new Connector();
+			connectors.add(connector);
+			idle.add(connector);
+		}
+	}
+
+	/**
+	 * Metodo que regresa el numero de conexiones del pool.
+	 * @return el numero de conexiones del pool.
+	 */
+	public int size () {
+		return connectors.size();
+	}
+
+	/**
+	 * Metodo que toma un conector del pool, esperando a que alguno se libere
+	 * si todos estan en uso.
+	 * @return un conector con la conexion establecida.
+	 * @throws SQLException si ocurre un error al conectarse con la base de datos.
+	 */
+	public Connector acquire () throws SQLException {
+		Connector connector;
+
+		try {
+			connector = idle.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		}
+
+		try {
+			connector.connect();
+		} catch (SQLException e) {
+			idle.add(connector);
+			throw e;
+		}
+
+		return connector;
+	}
+
+	/**
+	 * Metodo que regresa un conector al pool.
+	 * @param connector el conector que se va a regresar.
+	 */
+	public void release (Connector connector) {
+		idle.add(connector);
+	}
+
+	/**
+	 * Metodo que cierra todas las conexiones del pool.
+	 * @throws SQLException si ocurre un error al cerrar alguna conexion.
+	 */
+	public void close () throws SQLException {
+		SQLException error = null;
+
+		for (Connector connector : connectors) {
+			try {
+				connector.disconnect();
+			} catch (SQLException e) {
+				error = e;
+			}
+		}
+
+		if (error != null) {
+			throw error;
+		}
+	}
+}
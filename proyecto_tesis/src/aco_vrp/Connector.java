@@ -2,7 +2,11 @@ package aco_vrp;
  
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Clase que se encarga de establecer la conexion con la base de datos. 
@@ -19,6 +23,8 @@ public class Connector {
     private String username;
     /* Contrasenia del usuario. */
     private String password;
+    /* Consultas preparadas de la conexion de acuerdo a su SQL. */
+    private Map<String, PreparedStatement> statements;
 	
     /**
      * Constructor que crea un objeto Connector para hacer la conexion a la 
@@ -28,6 +34,7 @@ public class Connector {
     	route = "jdbc:mysql://localhost:3306/cities";
     	username = "proyecttesis";
     	password = "t3s1s";
+    	statements = new HashMap<String, PreparedStatement>();
     }
     
     /**
@@ -52,10 +59,31 @@ public class Connector {
      */
     public void disconnect () throws SQLException {
         if (connection != null && !connection.isClosed()) {
+        	statements.clear();
         	connection.close();
         }
     }
     
+    /**
+     * Metodo que regresa la consulta preparada para el SQL, la cual se 
+     * prepara solo la primera vez y se reutiliza mientras la conexion 
+     * siga abierta. La consulta no se debe cerrar.
+     * @param sql el SQL de la consulta.
+     * @return la consulta preparada.
+     * @throws SQLException si ocurre un error al preparar la consulta.
+     */
+    public PreparedStatement prepare (String sql) throws SQLException {
+    	PreparedStatement statement = statements.get(sql);
+    	
+    	if (statement == null || statement.isClosed()) {
+    		statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, 
+    				                                ResultSet.CONCUR_READ_ONLY);
+    		statements.put(sql, statement);
+    	}
+    	
+    	return statement;
+    }
+    
     /**
      * Metodo que regresa la conexion con la base de datos.
      * @return la conexion con la base de datos.
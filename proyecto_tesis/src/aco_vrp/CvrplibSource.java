@@ -0,0 +1,401 @@
+package aco_vrp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.stream.IntStream;
+
+/**
+ * Clase que obtiene el ejemplar de un archivo .vrp con el formato de CVRPLIB
+ * (TSPLIB), sin la base de datos. El archivo se lee una sola vez, renglon
+ * por renglon. Se aceptan las distancias EUC_2D, CEIL_2D, ATT y EXPLICIT, con
+ * los formatos FULL_MATRIX, UPPER_ROW, LOWER_ROW, UPPER_DIAG_ROW,
+ * LOWER_DIAG_ROW y sus equivalentes por columnas. Si el archivo tiene varios
+ * depositos se usa el primero de DEPOT_SECTION.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class CvrplibSource implements InstanceSource {
+
+	/* Archivo del ejemplar. */
+	private File file;
+	/* Capacidad de los vehiculos, 0 para usar la capacidad del archivo. */
+	private int capacity;
+
+	/**
+	 * Constructor que crea un objeto CvrplibSource.
+	 * @param file el archivo del ejemplar.
+	 */
+	public CvrplibSource (File file) {
+		this(file, 0);
+	}
+
+	/**
+	 * Constructor que crea un objeto CvrplibSource con la capacidad de los
+	 * vehiculos.
+	 * @param file el archivo del ejemplar.
+	 * @param capacity la capacidad de los vehiculos, 0 para usar la capacidad
+	 * del archivo.
+	 */
+	public CvrplibSource (File file, int capacity) {
+		this.file = file;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Metodo que lee el ejemplar del archivo. Los clientes tienen como ID su
+	 * numero de nodo en el archivo y el deposito se coloca como primer
+	 * cliente.
+	 * @return el ejemplar.
+	 * @throws IOException si ocurre un error al leer el archivo o el archivo
+	 * no es valido.
+	 */
+	@Override
+	public Instance load () throws IOException {
+		String name = file.getName();
+		String type = "EUC_2D";
+		String format = "FULL_MATRIX";
+		int n = -1;
+		int fileCapacity = 0;
+		double[] x = null;
+		double[] y = null;
+		int[] demands = null;
+		int[] weights = null;
+		int depot = -1;
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(file), 1 << 16)) {
+			Tokens tokens = new Tokens(reader);
+			String line = reader.readLine();
+
+			while (line != null) {
+				line = line.trim();
+				int colon = line.indexOf(':');
+				String key = (colon >= 0 ? line.substring(0, colon) : line).trim().toUpperCase();
+				String value = colon >= 0 ? line.substring(colon + 1).trim() : "";
+
+				if (key.equals("EOF")) {
+					break;
+				}
+
+				switch (key) {
+					case "NAME":
+						name = value;
+						break;
+					case "DIMENSION":
+						n = parseInt(value);
+						break;
+					case "CAPACITY":
+						fileCapacity = parseInt(value);
+						break;
+					case "EDGE_WEIGHT_TYPE":
+						type = value.toUpperCase();
+						break;
+					case "EDGE_WEIGHT_FORMAT":
+						format = value.toUpperCase();
+						break;
+					case "NODE_COORD_SECTION":
+						checkDimension(n, key);
+						x = new double[n];
+						y = new double[n];
+						for (int k = 0; k < n; k++) {
+							int node = node(tokens.nextInt(), n);
+							x[node] = tokens.nextDouble();
+							y[node] = tokens.nextDouble();
+						}
+						tokens.clear();
+						break;
+					case "DEMAND_SECTION":
+						checkDimension(n, key);
+						demands = new int[n];
+						for (int k = 0; k < n; k++) {
+							int node = node(tokens.nextInt(), n);
+							demands[node] = tokens.nextInt();
+						}
+						tokens.clear();
+						break;
+					case "DEPOT_SECTION":
+						checkDimension(n, key);
+						int id = tokens.nextInt();
+						while (id != -1) {
+							if (depot == -1) {
+								depot = node(id, n);
+							}
+							id = tokens.nextInt();
+						}
+						tokens.clear();
+						break;
+					case "EDGE_WEIGHT_SECTION":
+						checkDimension(n, key);
+						weights = readWeights(tokens, n, format);
+						tokens.clear();
+						break;
+					case "DISPLAY_DATA_SECTION":
+						checkDimension(n, key);
+						for (int k = 0; k < 3 * n; k++) {
+							tokens.next();
+						}
+						tokens.clear();
+						break;
+					default:
+						/* NAME, TYPE, COMMENT y otras llaves no se usan. */
+						break;
+				}
+
+				line = reader.readLine();
+			}
+		}
+
+		checkDimension(n, "DIMENSION");
+		if (demands == null) {
+			throw new IOException("El archivo " + file + " no tiene DEMAND_SECTION.");
+		}
+		if (type.equals("EXPLICIT") ? weights == null : x == null) {
+			throw new IOException("El archivo " + file + " no tiene las distancias entre los nodos.");
+		}
+
+		return build(name, n, Math.max(0, depot), x, y, demands, weights, type, fileCapacity);
+	}
+
+	/**
+	 * Metodo auxiliar que construye el ejemplar con el deposito en la primera
+	 * posicion y el resto de los nodos en el orden del archivo. Si el
+	 * archivo tiene coordenadas, cada cliente las conserva.
+	 */
+	private Instance build (String name, int n, int depot, double[] x, double[] y, int[] demands,
+			                int[] weights, String type, int fileCapacity) throws IOException {
+		int[] order = new int[n];
+		order[0] = depot;
+		for (int node = 0, k = 1; node < n; node++) {
+			if (node != depot) {
+				order[k++] = node;
+			}
+		}
+
+		List<Client> clients = new ArrayList<Client>(n);
+		for (int k = 0; k < n; k++) {
+			int node = order[k];
+			Client client = new Client(node + 1, "Nodo " + (node + 1), name);
+			client.setDemand(k == 0 ? 0 : demands[node]);
+			client.setIsDepot(k == 0);
+			if (x != null) {
+				client.setCoordinates(x[node], y[node]);
+			}
+			clients.add(client);
+		}
+
+		int[] distances = new int[n * n];
+		if (weights != null) {
+			IntStream.range(0, n).parallel().forEach(i -> {
+				for (int j = 0; j < n; j++) {
+					distances[i * n + j] = weights[order[i] * n + order[j]];
+				}
+			});
+		} else {
+			if (!type.equals("EUC_2D") && !type.equals("CEIL_2D") && !type.equals("ATT")) {
+				throw new IOException("El tipo de distancias " + type + " no esta soportado.");
+			}
+			double[] px = new double[n];
+			double[] py = new double[n];
+			for (int k = 0; k < n; k++) {
+				px[k] = x[order[k]];
+				py[k] = y[order[k]];
+			}
+			IntStream.range(0, n).parallel().forEach(i -> {
+				for (int j = 0; j < n; j++) {
+					distances[i * n + j] = distance(type, px[i] - px[j], py[i] - py[j]);
+				}
+			});
+		}
+
+		new ClientRegistry(clients);
+		Instance instance = new Instance(clients, clients.get(0), new DistanceMatrix(n, distances));
+		instance.setCapacity(capacity > 0 ? capacity : fileCapacity);
+		return instance;
+	}
+
+	/**
+	 * Metodo auxiliar que calcula la distancia entre dos nodos a partir de la
+	 * diferencia de sus coordenadas, de acuerdo al tipo de distancias.
+	 */
+	private static int distance (String type, double dx, double dy) {
+		switch (type) {
+			case "CEIL_2D":
+				return (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+			case "ATT":
+				double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+				int t = (int) (r + 0.5);
+				return t < r ? t + 1 : t;
+			default:
+				return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que lee la matriz de distancias de EDGE_WEIGHT_SECTION.
+	 * Los formatos triangulares se copian en ambos sentidos.
+	 */
+	private static int[] readWeights (Tokens tokens, int n, String format) throws IOException {
+		int[] weights = new int[n * n];
+
+		switch (format) {
+			case "FULL_MATRIX":
+				for (int k = 0; k < n * n; k++) {
+					weights[k] = tokens.nextInt();
+				}
+				break;
+			case "UPPER_ROW":
+			case "LOWER_COL":
+				for (int i = 0; i < n; i++) {
+					for (int j = i + 1; j < n; j++) {
+						setSymmetric(weights, n, i, j, tokens.nextInt());
+					}
+				}
+				break;
+			case "LOWER_ROW":
+			case "UPPER_COL":
+				for (int i = 0; i < n; i++) {
+					for (int j = 0; j < i; j++) {
+						setSymmetric(weights, n, i, j, tokens.nextInt());
+					}
+				}
+				break;
+			case "UPPER_DIAG_ROW":
+			case "LOWER_DIAG_COL":
+				for (int i = 0; i < n; i++) {
+					for (int j = i; j < n; j++) {
+						setSymmetric(weights, n, i, j, tokens.nextInt());
+					}
+				}
+				break;
+			case "LOWER_DIAG_ROW":
+			case "UPPER_DIAG_COL":
+				for (int i = 0; i < n; i++) {
+					for (int j = 0; j <= i; j++) {
+						setSymmetric(weights, n, i, j, tokens.nextInt());
+					}
+				}
+				break;
+			default:
+				throw new IOException("El formato de distancias " + format + " no esta soportado.");
+		}
+
+		return weights;
+	}
+
+	/**
+	 * Metodo auxiliar que asigna la distancia entre los nodos i y j en ambos
+	 * sentidos.
+	 */
+	private static void setSymmetric (int[] weights, int n, int i, int j, int weight) {
+		weights[i * n + j] = weight;
+		weights[j * n + i] = weight;
+	}
+
+	/**
+	 * Metodo auxiliar que convierte el numero de nodo del archivo, que
+	 * empieza en 1, en su indice.
+	 */
+	private static int node (int id, int n) throws IOException {
+		if (id < 1 || id > n) {
+			throw new IOException("El nodo " + id + " no esta entre 1 y " + n + ".");
+		}
+		return id - 1;
+	}
+
+	/**
+	 * Metodo auxiliar que verifica que se leyo DIMENSION antes de una seccion.
+	 */
+	private static void checkDimension (int n, String section) throws IOException {
+		if (n < 1) {
+			throw new IOException("Falta DIMENSION antes de " + section + ".");
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que convierte un valor del encabezado en entero.
+	 */
+	private static int parseInt (String value) throws IOException {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IOException("El valor " + value + " no es un entero.", e);
+		}
+	}
+
+	/**
+	 * Clase auxiliar que lee los numeros de las secciones del archivo, sin
+	 * importar como esten repartidos en los renglones.
+	 */
+	private static class Tokens {
+
+		/* Lector del archivo. */
+		private BufferedReader reader;
+		/* Numeros del renglon actual. */
+		private StringTokenizer tokenizer;
+
+		/**
+		 * Constructor que crea un objeto Tokens.
+		 * @param reader el lector del archivo.
+		 */
+		Tokens (BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		/**
+		 * Metodo que regresa el siguiente numero del archivo como cadena.
+		 */
+		String next () throws IOException {
+			while (tokenizer == null || !tokenizer.hasMoreTokens()) {
+				String line = reader.readLine();
+				if (line == null) {
+					throw new IOException("El archivo termino antes de lo esperado.");
+				}
+				tokenizer = new StringTokenizer(line);
+			}
+			return tokenizer.nextToken();
+		}
+
+		/**
+		 * Metodo que regresa el siguiente numero del archivo como entero. Los
+		 * numeros con decimales se redondean.
+		 */
+		int nextInt () throws IOException {
+			String token = next();
+			try {
+				return Integer.parseInt(token);
+			} catch (NumberFormatException e) {
+				return (int) Math.round(parseDouble(token));
+			}
+		}
+
+		/**
+		 * Metodo que regresa el siguiente numero del archivo como real.
+		 */
+		double nextDouble () throws IOException {
+			return parseDouble(next());
+		}
+
+		/**
+		 * Metodo que descarta el resto del renglon actual, al terminar una
+		 * seccion.
+		 */
+		void clear () {
+			tokenizer = null;
+		}
+
+		/**
+		 * Metodo auxiliar que convierte una cadena en real.
+		 */
+		private static double parseDouble (String token) throws IOException {
+			try {
+				return Double.parseDouble(token);
+			} catch (NumberFormatException e) {
+				throw new IOException("El valor " + token + " no es un numero.", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package aco_vrp;
+
+import org.javatuples.Pair;
+
+/**
+ * Clase que representa la matriz de distancias entre cada par de clientes
+ * del ejemplar. Los clientes se identifican por su indice en la lista de
+ * clientes y las distancias se guardan en un arreglo de enteros de tamanio
+ * n * n, por lo que cada consulta se realiza en tiempo constante.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class DistanceMatrix {
+
+	/* Numero de clientes del ejemplar. */
+	private int n;
+	/* Distancias entre cada par de clientes, por renglones. */
+	private int[] distances;
+
+	/**
+	 * Constructor que crea un objeto DistanceMatrix a partir de las listas
+	 * de distancias de los clientes.
+	 * @param registry el registro de los clientes del ejemplar.
+	 */
+	public DistanceMatrix (ClientRegistry registry) {
+		n = registry.size();
+		distances = new int[n * n];
+
+		for (int i = 0; i < n; i++) {
+			Client client = registry.getClients().get(i);
+
+			for (Pair<Integer, Integer> aux : client.getDistances()) {
+				if (aux != null) {
+					int j = registry.getIndex(aux.getValue0());
+					if (j != -1) {
+						distances[i * n + j] = aux.getValue1();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructor que crea un objeto DistanceMatrix a partir de un arreglo 
+	 * de distancias de tamanio n * n, ordenado por renglones.
+	 * @param n el numero de clientes del ejemplar.
+	 * @param distances las distancias entre cada par de clientes.
+	 */
+	public DistanceMatrix (int n, int[] distances) {
+		if (distances.length != n * n) {
+			throw new IllegalArgumentException("La matriz de distancias no es de " + n + " x " + n);
+		}
+		this.n = n;
+		this.distances = distances;
+	}
+
+	/**
+	 * Metodo que regresa el numero de clientes de la matriz.
+	 * @return el numero de clientes de la matriz.
+	 */
+	public int size () {
+		return n;
+	}
+
+	/**
+	 * Metodo que regresa el arreglo con las distancias entre cada par de 
+	 * clientes, ordenado por renglones. El arreglo no es una copia.
+	 * @return el arreglo con las distancias entre cada par de clientes.
+	 */
+	public int[] getData () {
+		return distances;
+	}
+
+	/**
+	 * Metodo que regresa la distancia entre el cliente i y el cliente j.
+	 * @param i el indice del cliente i.
+	 * @param j el indice del cliente j.
+	 * @return la distancia entre el cliente i y el cliente j.
+	 */
+	public int distance (int i, int j) {
+		return distances[i * n + j];
+	}
+
+	/**
+	 * Metodo que regresa la distancia entre el cliente 1 y el cliente 2.
+	 * @param client1 el cliente 1.
+	 * @param client2 el cliente 2.
+	 * @return la distancia entre el cliente 1 y el cliente 2.
+	 */
+	public int distance (Client client1, Client client2) {
+		return distances[client1.getIndex() * n + client2.getIndex()];
+	}
+
+	/**
+	 * Metodo que calcula la matriz de la inversa de la distancia entre cada 
+	 * par de clientes elevada a beta. Como las distancias y beta no cambian 
+	 * durante la ejecucion, la matriz se calcula una sola vez por ejemplar.
+	 * Una distancia de 0 entre dos clientes distintos se toma como 1, la 
+	 * menor distancia entera positiva, para que la inversa sea finita.
+	 * @param beta la importancia de la distancia en comparacion con la 
+	 * cantidad de feromonas.
+	 * @return la matriz de la inversa de la distancia elevada a beta.
+	 */
+	public double[][] heuristic (double beta) {
+		double[][] heuristic = new double[n][n];
+
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				double eta = Math.pow(Math.max(distances[i * n + j], 1), -1);
+				heuristic[i][j] = Math.pow(eta, beta);
+			}
+		}
+
+		return heuristic;
+	}
+}
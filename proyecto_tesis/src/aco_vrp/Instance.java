@@ -0,0 +1,98 @@
+package aco_vrp;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Clase que representa un ejemplar del VRP: la lista de clientes, con el
+ * deposito en la primera posicion, y la matriz de distancias entre cada
+ * par de clientes. La matriz de distancias se puede seguir cargando mientras
+ * se usan los clientes.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class Instance {
+
+	/* Lista de clientes del ejemplar. */
+	private List<Client> clients;
+	/* Deposito del ejemplar. */
+	private Client depot;
+	/* Matriz de distancias del ejemplar, que se puede seguir cargando. */
+	private CompletableFuture<DistanceMatrix> distances;
+	/* Capacidad de los vehiculos del ejemplar, 0 si el ejemplar no la indica. */
+	private int capacity;
+
+	/**
+	 * Constructor que crea un objeto Instance.
+	 * @param clients la lista de clientes del ejemplar.
+	 * @param depot el deposito del ejemplar.
+	 * @param distances la matriz de distancias del ejemplar.
+	 */
+	public Instance (List<Client> clients, Client depot, DistanceMatrix distances) {
+		this(clients, depot, CompletableFuture.completedFuture(distances));
+	}
+
+	/**
+	 * Constructor que crea un objeto Instance mientras la matriz de
+	 * distancias se sigue cargando.
+	 * @param clients la lista de clientes del ejemplar.
+	 * @param depot el deposito del ejemplar.
+	 * @param distances la matriz de distancias del ejemplar que se esta
+	 * cargando.
+	 */
+	public Instance (List<Client> clients, Client depot, CompletableFuture<DistanceMatrix> distances) {
+		this.clients = clients;
+		this.depot = depot;
+		this.distances = distances;
+	}
+
+	/**
+	 * Metodo que regresa la lista de clientes del ejemplar.
+	 * @return la lista de clientes del ejemplar.
+	 */
+	public List<Client> getClients () {
+		return clients;
+	}
+
+	/**
+	 * Metodo que regresa el deposito del ejemplar.
+	 * @return el deposito del ejemplar.
+	 */
+	public Client getDepot () {
+		return depot;
+	}
+
+	/**
+	 * Metodo que regresa la matriz de distancias del ejemplar, esperando a
+	 * que termine de cargarse.
+	 * @return la matriz de distancias del ejemplar.
+	 */
+	public DistanceMatrix getDistances () {
+		return distances.join();
+	}
+
+	/**
+	 * Metodo que regresa la matriz de distancias del ejemplar, que se puede
+	 * seguir cargando.
+	 * @return la matriz de distancias del ejemplar.
+	 */
+	public CompletableFuture<DistanceMatrix> getDistancesFuture () {
+		return distances;
+	}
+
+	/**
+	 * Metodo que regresa la capacidad de los vehiculos del ejemplar.
+	 * @return la capacidad de los vehiculos, 0 si el ejemplar no la indica.
+	 */
+	public int getCapacity () {
+		return capacity;
+	}
+
+	/**
+	 * Metodo que actualiza la capacidad de los vehiculos del ejemplar.
+	 * @param capacity la nueva capacidad de los vehiculos.
+	 */
+	public void setCapacity (int capacity) {
+		this.capacity = capacity;
+	}
+}
@@ -0,0 +1,190 @@
+package aco_vrp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Clase que genera ejemplares sinteticos sin la base de datos. Los clientes
+ * se colocan en un plano cuadrado, con el deposito en el centro, y la
+ * distancia entre dos clientes es la distancia euclidiana redondeada. Cada
+ * cliente conserva sus coordenadas para poder revisar o graficar la
+ * distribucion. Con la misma semilla, el mismo numero de clientes y la misma
+ * distribucion se genera siempre el mismo ejemplar.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class InstanceGenerator {
+
+	/**
+	 * Distribucion de los clientes en el plano.
+	 */
+	public enum Layout {
+		/* Los clientes se distribuyen uniformemente en el plano. */
+		UNIFORM,
+		/* Los clientes se agrupan alrededor de varios centros. */
+		CLUSTERED,
+		/* La mitad de los clientes, en promedio, se agrupan y el resto se
+		 * distribuye uniformemente. */
+		MIXED
+	}
+
+	/* Tamanio del lado del plano. */
+	private static final int SIDE = 1000;
+	/* Demanda maxima de cada cliente. */
+	private static final int MAX_DEMAND = 9;
+	/* Desviacion estandar de la distancia de un cliente al centro de su grupo. */
+	private static final double SIGMA = 40;
+	/* Numero promedio de clientes de cada grupo. */
+	private static final int CLUSTER_SIZE = 50;
+
+	/* Semilla del generador de numeros aleatorios. */
+	private long seed;
+
+	/**
+	 * Constructor que crea un objeto InstanceGenerator.
+	 * @param seed la semilla del generador de numeros aleatorios.
+	 */
+	public InstanceGenerator (long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Metodo que genera un ejemplar con n clientes y un deposito. El deposito
+	 * es el primer cliente, con ID 1 y demanda 0, y los clientes tienen IDs
+	 * de 2 a n + 1 y demandas entre 1 y 9.
+	 * @param n el numero de clientes sin contar al deposito.
+	 * @param layout la distribucion de los clientes en el plano.
+	 * @return el ejemplar generado.
+	 */
+	public Instance generate (int n, Layout layout) {
+		Random random = new Random(seed);
+		int size = n + 1;
+		int[] x = new int[size];
+		int[] y = new int[size];
+		List<Client> clients = new ArrayList<Client>(size);
+		int numClusters = Math.max(2, n / CLUSTER_SIZE);
+		int[] centerX = new int[numClusters];
+		int[] centerY = new int[numClusters];
+
+		for (int c = 0; c < numClusters; c++) {
+			centerX[c] = (int) (3 * SIGMA) + random.nextInt(SIDE - (int) (6 * SIGMA));
+			centerY[c] = (int) (3 * SIGMA) + random.nextInt(SIDE - (int) (6 * SIGMA));
+		}
+
+		x[0] = SIDE / 2;
+		y[0] = SIDE / 2;
+		clients.add(createClient(1, 0, layout));
+		clients.get(0).setCoordinates(x[0], y[0]);
+
+		for (int i = 1; i < size; i++) {
+			Boolean clustered = layout == Layout.CLUSTERED ||
+			                    (layout == Layout.MIXED && random.nextBoolean());
+			if (clustered) {
+				int c = random.nextInt(numClusters);
+				x[i] = clamp(centerX[c] + (int) Math.round(random.nextGaussian() * SIGMA));
+				y[i] = clamp(centerY[c] + (int) Math.round(random.nextGaussian() * SIGMA));
+			} else {
+				x[i] = random.nextInt(SIDE);
+				y[i] = random.nextInt(SIDE);
+			}
+			clients.add(createClient(i + 1, 1 + random.nextInt(MAX_DEMAND), layout));
+			clients.get(i).setCoordinates(x[i], y[i]);
+		}
+
+		int[] distances = new int[size * size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				double dx = x[i] - x[j];
+				double dy = y[i] - y[j];
+				distances[i * size + j] = (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+			}
+		}
+
+		new ClientRegistry(clients);
+		return new Instance(clients, clients.get(0), new DistanceMatrix(size, distances));
+	}
+
+	/**
+	 * Metodo que guarda un ejemplar generado como archivo de pedidos, con el
+	 * formato de Orders.txt, y como copia binaria, para que se pueda ejecutar
+	 * despues sin la base de datos usando el archivo de pedidos como
+	 * Orders.txt. Las coordenadas de los clientes se guardan aparte en un
+	 * archivo CSV con el mismo nombre, porque el archivo de pedidos solo
+	 * tiene el ID y la demanda de cada cliente.
+	 * @param instance el ejemplar generado.
+	 * @param orders el archivo de pedidos.
+	 * @param snapshot las copias binarias de los ejemplares.
+	 * @throws IOException si ocurre un error al escribir los archivos.
+	 */
+	public static void write (Instance instance, File orders, InstanceSnapshot snapshot) throws IOException {
+		List<Integer> IDs = new ArrayList<Integer>();
+		List<Integer> demands = new ArrayList<Integer>();
+
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(orders))) {
+			for (Client client : instance.getClients()) {
+				IDs.add(client.getId());
+				demands.add(client.getDemand());
+				writer.write(client.getId() + " - " + client.getDemand());
+				writer.newLine();
+			}
+		}
+
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(coordinatesFile(orders)))) {
+			writer.write("id,x,y,demand");
+			writer.newLine();
+			for (Client client : instance.getClients()) {
+				writer.write(client.getId() + "," + client.getX().intValue() + "," +
+				             client.getY().intValue() + "," + client.getDemand());
+				writer.newLine();
+			}
+		}
+
+		snapshot.write(IDs, demands, instance);
+	}
+
+	/**
+	 * Metodo que regresa el archivo CSV en el que se guardan las coordenadas
+	 * de los clientes de un archivo de pedidos generado.
+	 * @param orders el archivo de pedidos.
+	 * @return el archivo de coordenadas, con el nombre del archivo de pedidos
+	 * y la extension .csv.
+	 */
+	public static File coordinatesFile (File orders) {
+		String name = orders.getName().replaceFirst("\\.txt$", "");
+		return new File(orders.getParentFile(), name + ".csv");
+	}
+
+	/**
+	 * Metodo que regresa la distribucion con el nombre dado, sin importar
+	 * mayusculas y minusculas.
+	 * @param name el nombre de la distribucion.
+	 * @return la distribucion.
+	 * @throws IllegalArgumentException si no existe una distribucion con ese
+	 * nombre.
+	 */
+	public static Layout layout (String name) {
+		return Layout.valueOf(name.toUpperCase());
+	}
+
+	/**
+	 * Metodo auxiliar que crea un cliente generado.
+	 */
+	private static Client createClient (int id, int demand, Layout layout) {
+		Client client = new Client(id, "Ciudad " + id, layout.name().toLowerCase());
+		client.setDemand(demand);
+		client.setIsDepot(demand == 0);
+		return client;
+	}
+
+	/**
+	 * Metodo auxiliar que ajusta una coordenada para que quede dentro del plano.
+	 */
+	private static int clamp (int coordinate) {
+		return Math.max(0, Math.min(SIDE - 1, coordinate));
+	}
+}
@@ -0,0 +1,221 @@
+package aco_vrp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Clase que guarda y lee una copia binaria de un ejemplar, para no tener que
+ * consultar la base de datos cada vez que se ejecuta el programa con el mismo
+ * archivo de pedidos. El archivo tiene la siguiente forma:
+ * <pre>
+ * magic, version, llave, n, indice del deposito, crc
+ * n veces: ID, demanda, ciudad, estado
+ * n * n distancias
+ * </pre>
+ * La llave es un hash de los IDs y las demandas de los pedidos, y el crc se
+ * calcula sobre todo lo que sigue al encabezado.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class InstanceSnapshot {
+
+	/* Numero que identifica a los archivos de copias de ejemplares. */
+	private static final int MAGIC = 0x41434f56;
+	/* Version del formato del archivo. */
+	private static final int VERSION = 1;
+	/* Tamanio del encabezado en bytes. */
+	private static final int HEADER = 4 + 4 + 8 + 4 + 4 + 8;
+	/* Numero de distancias que se escriben a la vez. */
+	private static final int BLOCK = 1 << 16;
+
+	/* Directorio donde se guardan las copias de los ejemplares. */
+	private File directory;
+
+	/**
+	 * Constructor que crea un objeto InstanceSnapshot.
+	 * @param directory el directorio donde se guardan las copias.
+	 */
+	public InstanceSnapshot (File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Metodo que calcula la llave de un conjunto de pedidos.
+	 * @param IDs la lista con los IDs de los clientes.
+	 * @param demands la lista con las demandas de los clientes.
+	 * @return la llave del conjunto de pedidos.
+	 */
+	public static long key (List<Integer> IDs, List<Integer> demands) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer buffer = ByteBuffer.allocate(8 * IDs.size());
+			for (int i = 0; i < IDs.size(); i++) {
+				buffer.putInt(IDs.get(i));
+				buffer.putInt(demands.get(i));
+			}
+			return ByteBuffer.wrap(digest.digest(buffer.array())).getLong();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Metodo que regresa el archivo de la copia de un conjunto de pedidos.
+	 * @param key la llave del conjunto de pedidos.
+	 * @return el archivo de la copia.
+	 */
+	public File file (long key) {
+		return new File(directory, String.format("instance-%016x.bin", key));
+	}
+
+	/**
+	 * Metodo que lee la copia de un ejemplar. La copia solo es valida si tiene
+	 * los mismos IDs y demandas, en el mismo orden, que los pedidos.
+	 * @param IDs la lista con los IDs de los clientes.
+	 * @param demands la lista con las demandas de los clientes.
+	 * @return el ejemplar, null si no existe una copia valida.
+	 */
+	public Instance read (List<Integer> IDs, List<Integer> demands) {
+		long key = key(IDs, demands);
+		File file = file(key);
+
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				return null;
+			}
+
+			long keyS = buffer.getLong();
+			int n = buffer.getInt();
+			int depotIndex = buffer.getInt();
+			long crcS = buffer.getLong();
+			if (keyS != key || n != IDs.size() || depotIndex < 0 || depotIndex >= n) {
+				return null;
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(buffer.duplicate());
+			if (crc.getValue() != crcS) {
+				return null;
+			}
+
+			List<Client> clients = new ArrayList<Client>(n);
+			for (int i = 0; i < n; i++) {
+				int id = buffer.getInt();
+				int demand = buffer.getInt();
+				String city = readString(buffer);
+				String state = readString(buffer);
+				if (id != IDs.get(i) || demand != demands.get(i)) {
+					return null;
+				}
+				Client client = new Client(id, city, state);
+				client.setDemand(demand);
+				client.setIsDepot(i == depotIndex);
+				clients.add(client);
+			}
+
+			int[] distances = new int[n * n];
+			buffer.asIntBuffer().get(distances);
+			return new Instance(clients, clients.get(depotIndex), new DistanceMatrix(n, distances));
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Metodo que guarda la copia de un ejemplar. El archivo se escribe primero
+	 * en un archivo temporal para que una copia incompleta nunca sea leida.
+	 * @param IDs la lista con los IDs de los clientes.
+	 * @param demands la lista con las demandas de los clientes.
+	 * @param instance el ejemplar que se va a guardar.
+	 * @throws IOException si ocurre un error al escribir el archivo.
+	 */
+	public void write (List<Integer> IDs, List<Integer> demands, Instance instance) throws IOException {
+		List<Client> clients = instance.getClients();
+		int n = clients.size();
+		int[] distances = instance.getDistances().getData();
+		long key = key(IDs, demands);
+		Files.createDirectories(directory.toPath());
+		Path tmp = Files.createTempFile(directory.toPath(), "instance-", ".tmp");
+
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			CRC32 crc = new CRC32();
+			channel.position(HEADER);
+
+			for (Client client : clients) {
+				byte[] city = client.getCity().getBytes(StandardCharsets.UTF_8);
+				byte[] state = client.getState().getBytes(StandardCharsets.UTF_8);
+				ByteBuffer buffer = ByteBuffer.allocate(8 + 4 + city.length + 4 + state.length);
+				buffer.putInt(client.getId()).putInt(client.getDemand());
+				buffer.putInt(city.length).put(city);
+				buffer.putInt(state.length).put(state);
+				writeFully(channel, buffer.flip(), crc);
+			}
+
+			ByteBuffer block = ByteBuffer.allocate(4 * BLOCK);
+			for (int i = 0; i < distances.length; i += BLOCK) {
+				int length = Math.min(BLOCK, distances.length - i);
+				block.clear();
+				block.asIntBuffer().put(distances, i, length);
+				block.limit(4 * length);
+				writeFully(channel, block, crc);
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC).putInt(VERSION).putLong(key).putInt(n);
+			header.putInt(clients.indexOf(instance.getDepot()));
+			header.putLong(crc.getValue());
+			channel.position(0);
+			writeFully(channel, header.flip(), null);
+		} catch (IOException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+
+		Files.move(tmp, file(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Metodo auxiliar que escribe todo el contenido del buffer en el archivo.
+	 * @param channel el canal del archivo.
+	 * @param buffer el buffer que se va a escribir.
+	 * @param crc el crc que se actualiza con lo escrito, puede ser null.
+	 * @throws IOException si ocurre un error al escribir el archivo.
+	 */
+	private static void writeFully (FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+		if (crc != null) {
+			crc.update(buffer.duplicate());
+		}
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que lee una cadena con su longitud en bytes al inicio.
+	 * @param buffer el buffer del que se lee la cadena.
+	 * @return la cadena leida.
+	 */
+	private static String readString (ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,30 @@
+package aco_vrp;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Interfaz de las fuentes de las que se obtienen los ejemplares: el archivo
+ * Orders.txt con la base de datos, los archivos de CVRPLIB o el generador de
+ * ejemplares sinteticos.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public interface InstanceSource {
+
+	/**
+	 * Metodo que obtiene el ejemplar. La matriz de distancias se puede seguir
+	 * cargando despues de que el metodo regresa.
+	 * @return el ejemplar, con el deposito como primer cliente.
+	 * @throws IOException si ocurre un error al leer el ejemplar.
+	 * @throws SQLException si ocurre un error al acceder a la base de datos.
+	 */
+	Instance load () throws IOException, SQLException;
+
+	/**
+	 * Metodo que libera los recursos de la fuente cuando ya se termino de
+	 * cargar el ejemplar.
+	 */
+	default void close () {
+	}
+}
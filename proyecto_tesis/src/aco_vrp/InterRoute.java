@@ -0,0 +1,400 @@
+package aco_vrp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Clase que mejora las rutas moviendo clientes entre vehiculos con los
+ * movimientos relocate (mover un cliente a otra ruta), exchange (intercambiar
+ * dos clientes de rutas distintas) y 2-opt* (intercambiar el final de dos
+ * rutas). Cada movimiento se evalua en tiempo constante con las aristas que
+ * cambia y las cargas de las rutas que se guardan para cada ruta, y solo se
+ * aplica si ninguna ruta excede la capacidad de los vehiculos.
+ * Si el ejemplar tiene listas de vecinos, cada cliente solo se combina con sus
+ * vecinos mas cercanos, y los clientes cuyas aristas no cambiaron no se
+ * vuelven a revisar (don't-look bits).
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class InterRoute {
+
+	/* Instancia de la clase VRP. */
+	private VRP vrp;
+	/* Matriz de distancias del ejemplar. */
+	private DistanceMatrix distances;
+	/* Capacidad de carga de los vehiculos. */
+	private int capacity;
+	/* Demanda de cada cliente de acuerdo a su indice. */
+	private int[] demands;
+	/* Indice del deposito. */
+	private int depot;
+	/* Rutas, con los indices de sus clientes. */
+	private int[][] routes;
+	/* Numero de clientes de cada ruta, incluyendo al deposito dos veces. */
+	private int[] lengths;
+	/* Demanda atendida por cada ruta. */
+	private int[] loads;
+	/* Distancia recorrida por cada ruta. */
+	private int[] costs;
+	/* Demanda acumulada de cada ruta hasta cada posicion. */
+	private int[][] prefixLoads;
+	/* Ruta en la que se encuentra cada cliente, -1 si no esta en ninguna. */
+	private int[] routeOf;
+	/* Posicion de cada cliente en su ruta. */
+	private int[] positionOf;
+	/* Indices de los vecinos mas cercanos de cada cliente, null si se 
+	 * revisan todos los clientes. */
+	private int[][] neighbours;
+	/* Clientes que se tienen que volver a revisar. */
+	private int[] stack;
+	/* Numero de clientes que se tienen que volver a revisar. */
+	private int top;
+	/* Clientes que estan en la pila de clientes por revisar. */
+	private BitSet active;
+	/* Estadisticas de la ejecucion. */
+	private SolverStats stats;
+
+	/**
+	 * Constructor que crea un objeto InterRoute.
+	 * @param vrp la instancia de la clase VRP.
+	 * @param capacity la capacidad de carga de los vehiculos.
+	 */
+	public InterRoute (VRP vrp, int capacity) {
+		this.vrp = vrp;
+		this.distances = vrp.getDistances();
+		this.capacity = capacity;
+		this.neighbours = vrp.getNeighbours();
+		this.stats = vrp.getStats();
+		List<Client> clients = vrp.getClients();
+		demands = new int[clients.size()];
+
+		for (int i = 0; i < clients.size(); i++) {
+			Client client = clients.get(i);
+			demands[i] = client.getDemand();
+			if (client.getIsDepot()) {
+				depot = i;
+			}
+		}
+	}
+
+	/**
+	 * Metodo que mejora las rutas moviendo clientes entre ellas. Las rutas
+	 * que se quedan sin clientes se eliminan.
+	 * @param bestRoutes las rutas que se van a mejorar.
+	 * @return las rutas mejoradas.
+	 */
+	public List<List<Client>> improveRoutes (List<List<Client>> bestRoutes) {
+		load(bestRoutes);
+
+		if (improve() == 0) {
+			return bestRoutes;
+		}
+
+		List<Client> clients = vrp.getClients();
+		List<List<Client>> newRoutes = new ArrayList<List<Client>>();
+
+		for (int r = 0; r < routes.length; r++) {
+			if (lengths[r] > 2) {
+				List<Client> route = new ArrayList<Client>(lengths[r]);
+				for (int k = 0; k < lengths[r]; k++) {
+					route.add(clients.get(routes[r][k]));
+				}
+				newRoutes.add(route);
+			}
+		}
+
+		return newRoutes;
+	}
+
+	/**
+	 * Metodo que aplica movimientos entre rutas hasta que ninguno mejora la
+	 * distancia total. Se revisan los clientes activos hasta que no queda
+	 * ninguno, y al aplicar un movimiento se activan los clientes cuyas
+	 * aristas cambiaron.
+	 * @return la distancia total que se redujo.
+	 */
+	public int improve () {
+		int gain = 0;
+		stack = new int[routeOf.length];
+		top = 0;
+		active = new BitSet(routeOf.length);
+
+		for (int u = routeOf.length - 1; u >= 0; u--) {
+			activate(u);
+		}
+
+		while (top > 0) {
+			int u = stack[--top];
+			active.clear(u);
+			gain -= improveClient(u);
+		}
+
+		return gain;
+	}
+
+	/**
+	 * Metodo que busca y aplica el primer movimiento que mejora la distancia
+	 * total y que involucra al cliente u y a algun vecino de otra ruta.
+	 * @param u el indice del cliente.
+	 * @return el cambio en la distancia total, 0 si no se aplico un movimiento.
+	 */
+	public int improveClient (int u) {
+		int[] candidates = neighbours != null ? neighbours[u] : null;
+		int size = candidates != null ? candidates.length : routeOf.length;
+		int delta = 0;
+		int k = 0;
+
+		while (k < size && delta == 0) {
+			int v = candidates != null ? candidates[k] : k;
+			delta = applyMove(u, v);
+			k++;
+		}
+
+		stats.add(SolverStats.Counter.MOVES, k);
+		return delta;
+	}
+
+	/**
+	 * Metodo que evalua los movimientos entre el cliente u y el cliente v y
+	 * aplica el primero que mejora la distancia total.
+	 * @param u el indice del cliente u.
+	 * @param v el indice del cliente v.
+	 * @return el cambio en la distancia total, 0 si no se aplico un movimiento.
+	 */
+	public int applyMove (int u, int v) {
+		if (u == depot || v == depot || v == u || routeOf[u] < 0 || routeOf[v] < 0 ||
+			routeOf[v] == routeOf[u]) {
+			return 0;
+		}
+
+		int r1 = routeOf[u];
+		int p = positionOf[u];
+		int r2 = routeOf[v];
+		int q = positionOf[v];
+		int pu = routes[r1][p - 1];
+		int nu = routes[r1][p + 1];
+		int pv = routes[r2][q - 1];
+		int nv = routes[r2][q + 1];
+		int removeU = d(pu, u) + d(u, nu) - d(pu, nu);
+
+		/* Relocate: mover u despues de v o antes de v. */
+		if (loads[r2] + demands[u] <= capacity) {
+			int delta = d(v, u) + d(u, nv) - d(v, nv) - removeU;
+			if (delta < 0) {
+				relocate(r1, p, r2, q + 1);
+				activate(u, v, pu, nu, pv, nv);
+				return delta;
+			}
+
+			delta = d(pv, u) + d(u, v) - d(pv, v) - removeU;
+			if (delta < 0) {
+				relocate(r1, p, r2, q);
+				activate(u, v, pu, nu, pv, nv);
+				return delta;
+			}
+		}
+
+		/* Exchange: intercambiar u y v. */
+		if (loads[r1] - demands[u] + demands[v] <= capacity &&
+			loads[r2] - demands[v] + demands[u] <= capacity) {
+			int delta = d(pu, v) + d(v, nu) - d(pu, u) - d(u, nu) +
+			            d(pv, u) + d(u, nv) - d(pv, v) - d(v, nv);
+			if (delta < 0) {
+				exchange(r1, p, r2, q);
+				activate(u, v, pu, nu, pv, nv);
+				return delta;
+			}
+		}
+
+		/* 2-opt*: cortar despues de u y despues de v. */
+		if (prefixLoads[r1][p] + loads[r2] - prefixLoads[r2][q] <= capacity &&
+			prefixLoads[r2][q] + loads[r1] - prefixLoads[r1][p] <= capacity) {
+			int delta = d(u, nv) + d(v, nu) - d(u, nu) - d(v, nv);
+			if (delta < 0) {
+				twoOptStar(r1, p, r2, q);
+				activate(u, v, pu, nu, pv, nv);
+				return delta;
+			}
+		}
+
+		/* 2-opt*: cortar antes de u y antes de v. */
+		if (prefixLoads[r1][p - 1] + loads[r2] - prefixLoads[r2][q - 1] <= capacity &&
+			prefixLoads[r2][q - 1] + loads[r1] - prefixLoads[r1][p - 1] <= capacity) {
+			int delta = d(pu, v) + d(pv, u) - d(pu, u) - d(pv, v);
+			if (delta < 0) {
+				twoOptStar(r1, p - 1, r2, q - 1);
+				activate(u, v, pu, nu, pv, nv);
+				return delta;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Metodo que regresa la distancia total de las rutas.
+	 * @return la distancia total de las rutas.
+	 */
+	public int getTotalDistance () {
+		int total = 0;
+
+		for (int r = 0; r < routes.length; r++) {
+			total += costs[r];
+		}
+
+		return total;
+	}
+
+	/**
+	 * Metodo auxiliar que carga las rutas en los arreglos de indices.
+	 * @param bestRoutes las rutas.
+	 */
+	private void load (List<List<Client>> bestRoutes) {
+		int n = demands.length;
+		int m = bestRoutes.size();
+		routes = new int[m][];
+		lengths = new int[m];
+		loads = new int[m];
+		costs = new int[m];
+		prefixLoads = new int[m][];
+		routeOf = new int[n];
+		positionOf = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			routeOf[i] = -1;
+		}
+
+		for (int r = 0; r < m; r++) {
+			List<Client> route = bestRoutes.get(r);
+			routes[r] = new int[route.size() + 1];
+			prefixLoads[r] = new int[route.size() + 1];
+			lengths[r] = route.size();
+			for (int k = 0; k < route.size(); k++) {
+				routes[r][k] = route.get(k).getIndex();
+			}
+			refresh(r);
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que vuelve a calcular la carga, la distancia, las
+	 * cargas acumuladas y las posiciones de los clientes de una ruta.
+	 * @param r la ruta.
+	 */
+	private void refresh (int r) {
+		int[] route = routes[r];
+		int load = 0;
+		int cost = 0;
+
+		for (int k = 0; k < lengths[r]; k++) {
+			int c = route[k];
+			load += demands[c];
+			prefixLoads[r][k] = load;
+			if (k > 0) {
+				cost += d(route[k - 1], c);
+			}
+			if (c != depot) {
+				routeOf[c] = r;
+				positionOf[c] = k;
+			}
+		}
+
+		loads[r] = load;
+		costs[r] = cost;
+	}
+
+	/**
+	 * Metodo auxiliar que mueve al cliente de la posicion p de la ruta r1 a
+	 * la posicion q de la ruta r2.
+	 */
+	private void relocate (int r1, int p, int r2, int q) {
+		int u = routes[r1][p];
+		System.arraycopy(routes[r1], p + 1, routes[r1], p, lengths[r1] - p - 1);
+		lengths[r1]--;
+		ensureCapacity(r2, lengths[r2] + 1);
+		System.arraycopy(routes[r2], q, routes[r2], q + 1, lengths[r2] - q);
+		routes[r2][q] = u;
+		lengths[r2]++;
+		refresh(r1);
+		refresh(r2);
+	}
+
+	/**
+	 * Metodo auxiliar que intercambia el cliente de la posicion p de la ruta
+	 * r1 con el cliente de la posicion q de la ruta r2.
+	 */
+	private void exchange (int r1, int p, int r2, int q) {
+		int aux = routes[r1][p];
+		routes[r1][p] = routes[r2][q];
+		routes[r2][q] = aux;
+		refresh(r1);
+		refresh(r2);
+	}
+
+	/**
+	 * Metodo auxiliar que intercambia los finales de las rutas r1 y r2, a
+	 * partir de la posicion p + 1 de r1 y q + 1 de r2.
+	 */
+	private void twoOptStar (int r1, int p, int r2, int q) {
+		int tail1 = lengths[r1] - p - 1;
+		int tail2 = lengths[r2] - q - 1;
+		ensureCapacity(r1, p + 1 + tail2);
+		ensureCapacity(r2, q + 1 + tail1);
+		int[] route1 = routes[r1];
+		int[] route2 = routes[r2];
+		int[] aux = new int[tail1];
+		System.arraycopy(route1, p + 1, aux, 0, tail1);
+		System.arraycopy(route2, q + 1, route1, p + 1, tail2);
+		System.arraycopy(aux, 0, route2, q + 1, tail1);
+		lengths[r1] = p + 1 + tail2;
+		lengths[r2] = q + 1 + tail1;
+		refresh(r1);
+		refresh(r2);
+	}
+
+	/**
+	 * Metodo auxiliar que agranda los arreglos de la ruta r para que quepan
+	 * size clientes. Los arreglos crecen al doble, por lo que cada ruta
+	 * ocupa a lo mas el doble de su longitud.
+	 */
+	private void ensureCapacity (int r, int size) {
+		if (routes[r].length < size) {
+			int capacity = Math.max(size, 2 * routes[r].length);
+			routes[r] = Arrays.copyOf(routes[r], capacity);
+			prefixLoads[r] = Arrays.copyOf(prefixLoads[r], capacity);
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que agrega a los clientes de un movimiento a la pila de
+	 * clientes por revisar.
+	 */
+	private void activate (int u, int v, int pu, int nu, int pv, int nv) {
+		activate(u);
+		activate(v);
+		activate(pu);
+		activate(nu);
+		activate(pv);
+		activate(nv);
+	}
+
+	/**
+	 * Metodo auxiliar que agrega a un cliente a la pila de clientes por
+	 * revisar si esta en alguna ruta y aun no esta en la pila.
+	 */
+	private void activate (int c) {
+		if (stack != null && c != depot && routeOf[c] >= 0 && !active.get(c)) {
+			active.set(c);
+			stack[top++] = c;
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que regresa la distancia entre el cliente i y el j.
+	 */
+	private int d (int i, int j) {
+		return distances.distance(i, j);
+	}
+}
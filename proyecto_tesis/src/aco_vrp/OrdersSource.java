@@ -0,0 +1,220 @@
+package aco_vrp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.javatuples.Pair;
+
+/**
+ * Clase que obtiene el ejemplar de un archivo de pedidos, como Orders.txt,
+ * con los IDs y las demandas de los clientes. Los clientes y las distancias
+ * se leen de la copia binaria del ejemplar si existe, o de la base de datos
+ * en otro caso, y entonces se guarda la copia al cerrar la fuente.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class OrdersSource implements InstanceSource {
+
+	/* Archivo de pedidos, null si los IDs y las demandas ya se conocen. */
+	private File orders;
+	/* Copias binarias de los ejemplares, null si no se usan. */
+	private InstanceSnapshot snapshot;
+	/* IDs de los clientes del ejemplar. */
+	private List<Integer> idClients;
+	/* Demandas de los clientes del ejemplar. */
+	private List<Integer> demands;
+	/* Busqueda en la base de datos, null si el ejemplar se leyo de la copia. */
+	private SearchBD search;
+	/* Ejemplar obtenido de la base de datos. */
+	private Instance instance;
+	/* IDs de los clientes de los pedidos que no estan en la base de datos. */
+	private List<Integer> missing = new ArrayList<Integer>();
+
+	/**
+	 * Constructor que crea un objeto OrdersSource.
+	 * @param orders el archivo de pedidos.
+	 * @param snapshot las copias binarias de los ejemplares, null si no se
+	 * leen ni se guardan copias.
+	 */
+	public OrdersSource (File orders, InstanceSnapshot snapshot) {
+		this.orders = orders;
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Constructor que crea un objeto OrdersSource a partir de los IDs y las
+	 * demandas de los clientes, sin archivo de pedidos. Los clientes se
+	 * obtienen en el orden de la lista de IDs.
+	 * @param idClients los IDs de los clientes.
+	 * @param demands las demandas de los clientes.
+	 * @param snapshot las copias binarias de los ejemplares, null si no se
+	 * leen ni se guardan copias.
+	 */
+	public OrdersSource (List<Integer> idClients, List<Integer> demands, InstanceSnapshot snapshot) {
+		this.idClients = idClients;
+		this.demands = demands;
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Metodo que obtiene los clientes y la matriz de distancias, de la copia
+	 * binaria del ejemplar si existe o de la base de datos en otro caso. Si
+	 * se obtienen de la base de datos, la matriz de distancias se sigue
+	 * cargando en paralelo.
+	 * @return el ejemplar.
+	 * @throws IOException si ocurre un error al leer el archivo de pedidos.
+	 * @throws SQLException si ocurre un error al acceder a la base de datos.
+	 */
+	@Override
+	public Instance load () throws IOException, SQLException {
+		if (orders != null) {
+			Pair<List<Integer>, List<Integer>> read = readOrders(orders);
+			idClients = read.getValue0();
+			demands = read.getValue1();
+			moveDepotFirst();
+		}
+
+		if (snapshot != null) {
+			Instance copy = snapshot.read(idClients, demands);
+			if (copy != null) {
+				return copy;
+			}
+		}
+
+		search = new SearchBD();
+		List<Client> clients = removeMissing(search.getClients(idClients));
+		CompletableFuture<DistanceMatrix> distances = search.getDistanceMatrixAsync(idClients);
+		Client depot = null;
+
+		for (int i = 0; i < clients.size(); i++) {
+			Client client = clients.get(i);
+			int demand = demands.get(i);
+			client.setDemand(demand);
+			if (demand == 0) {
+				depot = client;
+				Boolean isDepot = true;
+				client.setIsDepot(isDepot);
+			}
+		}
+
+		new ClientRegistry(clients);
+		instance = new Instance(clients, depot, distances);
+		return instance;
+	}
+
+	/**
+	 * Metodo que regresa los IDs de los clientes de los pedidos que no estan 
+	 * en la base de datos. Estos clientes no forman parte del ejemplar.
+	 * @return los IDs de los clientes que no se encontraron, en el orden de 
+	 * los pedidos.
+	 */
+	public List<Integer> getMissing () {
+		return missing;
+	}
+
+	/**
+	 * Metodo auxiliar que quita de los pedidos a los clientes que no estan en
+	 * la base de datos y guarda sus IDs, para que la matriz de distancias y
+	 * la copia binaria solo tengan a los clientes encontrados.
+	 */
+	private List<Client> removeMissing (List<Client> found) {
+		List<Client> clients = new ArrayList<Client>(found.size());
+		List<Integer> foundIDs = new ArrayList<Integer>(found.size());
+		List<Integer> foundDemands = new ArrayList<Integer>(found.size());
+
+		for (int i = 0; i < found.size(); i++) {
+			if (found.get(i) == null) {
+				missing.add(idClients.get(i));
+			} else {
+				clients.add(found.get(i));
+				foundIDs.add(idClients.get(i));
+				foundDemands.add(demands.get(i));
+			}
+		}
+
+		idClients = foundIDs;
+		demands = foundDemands;
+		return clients;
+	}
+
+	/**
+	 * Metodo que cierra las conexiones con la base de datos y guarda la copia
+	 * binaria del ejemplar, si se obtuvo de la base de datos.
+	 */
+	@Override
+	public void close () {
+		if (search == null) {
+			return;
+		}
+
+		try {
+			search.close();
+		} catch (SQLException e) {
+			System.err.println("Error al cerrar la conexion con la base de datos.");
+		}
+
+		if (snapshot != null && instance != null &&
+			!instance.getDistancesFuture().isCompletedExceptionally()) {
+			try {
+				snapshot.write(idClients, demands, instance);
+			} catch (IOException e) {
+				System.err.println("No se pudo guardar la copia del ejemplar.");
+			}
+		}
+	}
+
+	/**
+	 * Metodo que obtiene los IDs y las demandas de los clientes de un archivo
+	 * de pedidos, en el orden del archivo.
+	 * @param orders el archivo de pedidos.
+	 * @return los IDs y las demandas de los clientes.
+	 * @throws IOException si ocurre un error al leer el archivo o tiene un
+	 * pedido que no es valido.
+	 */
+	public static Pair<List<Integer>, List<Integer>> readOrders (File orders) throws IOException {
+		List<Integer> idClients = new ArrayList<Integer>();
+		List<Integer> demands = new ArrayList<Integer>();
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(orders.getPath()))) {
+			String line = reader.readLine();
+
+			while (line != null) {
+				String[] order = line.split("-");
+
+				if (order.length == 2) {
+					String idCS = order[0].replaceAll("\\s", "");
+					int idClient = Integer.parseInt(idCS);
+					idClients.add(idClient);
+
+					String demandS = order[1].replaceAll("\\s", "");
+					int demand = Integer.parseInt(demandS);
+					demands.add(demand);
+				}
+
+				line = reader.readLine();
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("El archivo " + orders + " tiene un pedido que no es valido.", e);
+		}
+
+		return new Pair<List<Integer>, List<Integer>>(idClients, demands);
+	}
+
+	/**
+	 * Metodo auxiliar que coloca al deposito, el cliente con demanda 0, al
+	 * inicio de las listas de IDs y de demandas.
+	 */
+	private void moveDepotFirst () {
+		for (int i = 0; i < demands.size(); i++) {
+			if (demands.get(i) == 0) {
+				idClients.add(0, idClients.remove(i));
+				demands.add(0, demands.remove(i));
+			}
+		}
+	}
+}
@@ -1,81 +1,125 @@
 package aco_vrp;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.javatuples.Pair;
 
 
 /**
- * Clase que se conecta con la base de datos y obtiene los datos de los 
- * clientes y las distancias entre cada par de clientes. 
+ * Clase que se conecta con la base de datos y obtiene los datos de los
+ * clientes y las distancias entre cada par de clientes. Las conexiones se
+ * toman de un pool y se reutilizan entre consultas.
  * @author Teresa Becerril Torres
  * @version 1.0
  */
 public class SearchBD {
-	
-	/* Conexion con la base de datos. */
-	private Connection con;
-	/* Conector de la base de datos. */
-	private Connector connector;
-	
+
+	/* Numero de conexiones por omision. */
+	public static final int CONNECTIONS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+	/* Pool de conexiones con la base de datos. */
+	private ConnectionPool pool;
+	/* Hilos que cargan las distancias en paralelo. */
+	private ExecutorService executor;
+
 	/**
 	 * Constructor que crea un objeto SearchBD.
 	 */
 	public SearchBD () {
-		connector = new Connector();
+		this(CONNECTIONS);
 	}
-	 
+
+	/**
+	 * Constructor que crea un objeto SearchBD con un numero de conexiones.
+	 * @param connections el numero de conexiones con la base de datos.
+	 */
+	public SearchBD (int connections) {
+		pool = new ConnectionPool(connections);
+		executor = Executors.newFixedThreadPool(connections, r -> {
+			Thread thread = new Thread(r, "SearchBD");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
 	/**
 	 * Metodo que obtiene un cliente a partir del id.
 	 * @param idCity el id del cliente
-	 * @return el cliente que tiene ese id. 
+	 * @return el cliente que tiene ese id.
 	 * @throws SQLException si ocurre un error al acceder a la base de datos.
 	 */
 	public Client getClient (int idCity) throws SQLException {
 		Client client = null;
 		String sql = "SELECT * FROM cities WHERE id_city = ?";
-		connector.connect();
-		con = connector.getConnection();
-		PreparedStatement statement = con.prepareStatement(sql);
-		statement.setInt(1, idCity);
-		ResultSet res = statement.executeQuery();
-		if(res.next()) {
-			client = new Client(res.getInt("id_city"), res.getString("city"), res.getString("state"));
+		Connector connector = pool.acquire();
+		try {
+			PreparedStatement statement = connector.prepare(sql);
+			statement.setInt(1, idCity);
+			try (ResultSet res = statement.executeQuery()) {
+				if(res.next()) {
+					client = new Client(res.getInt("id_city"), res.getString("city"), res.getString("state"));
+				}
+			}
+		} finally {
+			pool.release(connector);
 		}
-		res.close();
-		connector.disconnect();
 		return client;
 	}
-	
+
 	/**
-	 * Metodo que regresa la lista de clientes que su id pertenece a la lista IDs. 
+	 * Metodo que regresa la lista de clientes que su id pertenece a la lista IDs,
+	 * en el mismo orden que la lista IDs. Todos los clientes se obtienen con
+	 * una sola consulta.
 	 * @param IDs la lista con los IDs de los clientes.
 	 * @return la lista de clientes que su id pertenece a la lista IDs.
 	 * @throws SQLException si ocurre un error al acceder a la base de datos.
 	 */
 	public List<Client> getClients (List<Integer> IDs) throws SQLException {
 		List<Client> clients = new ArrayList<Client>();
-		String sql = "SELECT * FROM cities WHERE id_city = ?";
-		connector.connect();
-		con = connector.getConnection();
-		for (Integer id: IDs) {
-			Client client = null;
-			PreparedStatement statement = con.prepareStatement(sql);
-			statement.setInt(1, id);
-			ResultSet res = statement.executeQuery();
-			if(res.next()) {
-				client = new Client(res.getInt("id_city"), res.getString("city"), res.getString("state"));
+		Map<Integer, Client> found = new HashMap<Integer, Client>();
+
+		if (IDs.isEmpty()) {
+			return clients;
+		}
+
+		String sql = "SELECT id_city, city, state FROM cities WHERE id_city IN (" +
+		             placeholders(IDs.size()) + ")";
+		SolverEvents.DatabaseQuery event = new SolverEvents.DatabaseQuery();
+		event.begin();
+		Connector connector = pool.acquire();
+		try {
+			PreparedStatement statement = connector.prepare(sql);
+			setIDs(statement, 1, IDs, 0, IDs.size());
+			try (ResultSet res = statement.executeQuery()) {
+				while (res.next()) {
+					Client client = new Client(res.getInt(1), res.getString(2), res.getString(3));
+					found.put(client.getId(), client);
+				}
 			}
-			clients.add(client);
+		} finally {
+			pool.release(connector);
+			event.table = "cities";
+			event.clients = IDs.size();
+			event.rows = found.size();
+			event.commit();
+		}
+
+		for (Integer id: IDs) {
+			clients.add(found.get(id));
 		}
-		connector.disconnect();
+
 		return clients;
 	}
-	
+
 	/**
 	 * Metodo que obtiene la distancia entre el cliente 1 y el cliente 2.
 	 * @param id_city1 el id del cliente 1.
@@ -86,48 +130,211 @@ public class SearchBD {
 	public Integer getDistance (int idCity1, int idCity2) throws SQLException {
 		int distance = -1;
 		String sql = "SELECT * FROM distances WHERE id_city1 = ? AND id_city2 = ?";
-		connector.connect();
-		con = connector.getConnection();
-		PreparedStatement statement = con.prepareStatement(sql);
-		statement.setInt(1, idCity1);
-		statement.setInt(2, idCity2);
-		ResultSet res = statement.executeQuery();
-		if(res.next()) {
-			distance = res.getInt("distance");
+		Connector connector = pool.acquire();
+		try {
+			PreparedStatement statement = connector.prepare(sql);
+			statement.setInt(1, idCity1);
+			statement.setInt(2, idCity2);
+			try (ResultSet res = statement.executeQuery()) {
+				if(res.next()) {
+					distance = res.getInt("distance");
+				}
+			}
+		} finally {
+			pool.release(connector);
 		}
-		res.close();
-		connector.disconnect();
 		return distance;
 	}
-	
+
 	/**
-	 * Método que regresa la lista de tuplas con el id del cliente n y la distancia entre 
+	 * Método que regresa la lista de tuplas con el id del cliente n y la distancia entre
 	 * el cliente 1 y el cliente n.
-	 * @param id_city el id del cliente 1. 
+	 * @param id_city el id del cliente 1.
 	 * @param IDs la lista con los IDs de los clientes n.
-	 * @return la lista de tuplas con el id del cliente n y la distancia entre 
+	 * @return la lista de tuplas con el id del cliente n y la distancia entre
 	 * el cliente 1 y el cliente n.
 	 * @throws SQLException si ocurre un error al acceder a la base de datos.
 	 */
 	public List<Pair<Integer, Integer>> getDistances (int idCity, List<Integer> IDs) throws SQLException {
 		List<Pair<Integer, Integer>> distances = new ArrayList<Pair<Integer, Integer>>();
 		String sql = "SELECT * FROM distances WHERE id_city1 = ? and id_city2 = ?";
-		connector.connect();
-		con = connector.getConnection();
-		for (Integer id: IDs) {
-			if (idCity != id) {
-				Pair<Integer, Integer> distance = null;
-				PreparedStatement statement = con.prepareStatement(sql);
-				statement.setInt(1, idCity);
-				statement.setInt(2, id);
-				ResultSet res = statement.executeQuery();
-				if(res.next()) {
-					distance = new Pair<Integer, Integer>(id, res.getInt("distance"));
+		Connector connector = pool.acquire();
+		try {
+			PreparedStatement statement = connector.prepare(sql);
+			for (Integer id: IDs) {
+				if (idCity != id) {
+					Pair<Integer, Integer> distance = null;
+					statement.setInt(1, idCity);
+					statement.setInt(2, id);
+					try (ResultSet res = statement.executeQuery()) {
+						if(res.next()) {
+							distance = new Pair<Integer, Integer>(id, res.getInt("distance"));
+						}
+					}
+					distances.add(distance);
 				}
-				distances.add(distance);
 			}
+		} finally {
+			pool.release(connector);
 		}
-		connector.disconnect();
 		return distances;
 	}
+
+	/**
+	 * Metodo que obtiene la matriz de distancias entre cada par de clientes
+	 * de la lista IDs con una sola consulta. El indice de cada cliente en la
+	 * matriz es su posicion en la lista IDs.
+	 * @param IDs la lista con los IDs de los clientes.
+	 * @return la matriz de distancias entre cada par de clientes.
+	 * @throws SQLException si ocurre un error al acceder a la base de datos.
+	 */
+	public DistanceMatrix getDistanceMatrix (List<Integer> IDs) throws SQLException {
+		int n = IDs.size();
+		int[] distances = new int[n * n];
+		Map<Integer, Integer> indexes = indexes(IDs);
+		searchRows(IDs, 0, n, indexes, distances);
+		return new DistanceMatrix(n, distances);
+	}
+
+	/**
+	 * Metodo que obtiene la matriz de distancias entre cada par de clientes
+	 * de la lista IDs. Los renglones de la matriz se dividen en bloques y cada
+	 * bloque se obtiene en paralelo con una conexion distinta del pool,
+	 * mientras el hilo que llama al metodo puede seguir trabajando.
+	 * @param IDs la lista con los IDs de los clientes.
+	 * @return la matriz de distancias, que se completa cuando se obtienen
+	 * todos los bloques. Si ocurre un error al acceder a la base de datos se
+	 * completa con una SQLException.
+	 */
+	public CompletableFuture<DistanceMatrix> getDistanceMatrixAsync (List<Integer> IDs) {
+		int n = IDs.size();
+		int[] distances = new int[n * n];
+		Map<Integer, Integer> indexes = indexes(IDs);
+		int rows = Math.max(1, (n + pool.size() - 1) / pool.size());
+		List<CompletableFuture<Void>> blocks = new ArrayList<CompletableFuture<Void>>();
+
+		for (int first = 0; first < n; first += rows) {
+			int from = first;
+			int to = Math.min(n, first + rows);
+			blocks.add(CompletableFuture.runAsync(() -> {
+				try {
+					searchRows(IDs, from, to, indexes, distances);
+				} catch (SQLException e) {
+					throw new CompletionException(e);
+				}
+			}, executor));
+		}
+
+		return CompletableFuture.allOf(blocks.toArray(new CompletableFuture<?>[0]))
+				.thenApply(v -> new DistanceMatrix(n, distances));
+	}
+
+	/**
+	 * Metodo que cierra las conexiones con la base de datos.
+	 * @throws SQLException si ocurre un error al cerrar alguna conexion.
+	 */
+	public void close () throws SQLException {
+		executor.shutdown();
+		pool.close();
+	}
+
+	/**
+	 * Metodo auxiliar que obtiene con una sola consulta los renglones de la
+	 * matriz de distancias de los clientes con indice entre from y to, y los
+	 * escribe directamente en el arreglo de distancias.
+	 * @param IDs la lista con los IDs de los clientes.
+	 * @param from el indice del primer renglon.
+	 * @param to el indice siguiente al ultimo renglon.
+	 * @param indexes los indices de los clientes de acuerdo a su ID.
+	 * @param distances el arreglo de distancias de tamanio n * n.
+	 * @throws SQLException si ocurre un error al acceder a la base de datos.
+	 */
+	private void searchRows (List<Integer> IDs, int from, int to, Map<Integer, Integer> indexes,
+			                 int[] distances) throws SQLException {
+		int n = IDs.size();
+
+		if (from >= to) {
+			return;
+		}
+
+		String sql = "SELECT id_city1, id_city2, distance FROM distances " +
+		             "WHERE id_city1 IN (" + placeholders(to - from) + ") " +
+		             "AND id_city2 IN (" + placeholders(n) + ")";
+		SolverEvents.DatabaseQuery event = new SolverEvents.DatabaseQuery();
+		long rows = 0;
+		event.begin();
+		Connector connector = pool.acquire();
+		try {
+			PreparedStatement statement = connector.prepare(sql);
+			/* El conector de MySQL solo recorre el resultado renglon por renglon,
+			 * sin cargarlo completo en memoria, con este tamanio de bloque. */
+			statement.setFetchSize(Integer.MIN_VALUE);
+			setIDs(statement, 1, IDs, from, to);
+			setIDs(statement, to - from + 1, IDs, 0, n);
+			try (ResultSet res = statement.executeQuery()) {
+				while (res.next()) {
+					int i = indexes.get(res.getInt(1));
+					int j = indexes.get(res.getInt(2));
+					distances[i * n + j] = res.getInt(3);
+					rows++;
+				}
+			}
+		} finally {
+			pool.release(connector);
+			event.table = "distances";
+			event.clients = to - from;
+			event.rows = rows;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que regresa los indices de los clientes de acuerdo a
+	 * su ID.
+	 * @param IDs la lista con los IDs de los clientes.
+	 * @return los indices de los clientes de acuerdo a su ID.
+	 */
+	private static Map<Integer, Integer> indexes (List<Integer> IDs) {
+		Map<Integer, Integer> indexes = new HashMap<Integer, Integer>();
+
+		for (int i = 0; i < IDs.size(); i++) {
+			indexes.put(IDs.get(i), i);
+		}
+
+		return indexes;
+	}
+
+	/**
+	 * Metodo auxiliar que construye la lista de parametros de una clausula IN.
+	 * @param n el numero de parametros.
+	 * @return la lista de parametros de la forma "?, ?, ..., ?".
+	 */
+	private static String placeholders (int n) {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append('?');
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Metodo auxiliar que asigna los IDs a los parametros de la consulta.
+	 * @param statement la consulta.
+	 * @param first el indice del primer parametro que se va a asignar.
+	 * @param IDs la lista con los IDs de los clientes.
+	 * @param from el indice del primer ID que se asigna.
+	 * @param to el indice siguiente al ultimo ID que se asigna.
+	 * @throws SQLException si ocurre un error al asignar los parametros.
+	 */
+	private static void setIDs (PreparedStatement statement, int first, List<Integer> IDs,
+			                    int from, int to) throws SQLException {
+		for (int i = from; i < to; i++) {
+			statement.setInt(first + i - from, IDs.get(i));
+		}
+	}
 }
@@ -1,13 +1,9 @@
 package aco_vrp;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
-import org.javatuples.Pair;
 
 
 /**
@@ -17,85 +13,141 @@ import org.javatuples.Pair;
  */
 public class Solution {
 	
-	/* IDs de los clientes del ejemplar. */
-	private static List<Integer> idClients;
-	/* Demandas de los clientes del ejemplar. */
-	private static List<Integer> demands;
-	/* Lista de clientes del ejemplar. */
-	private static List<Client> clients;
-	/* Deposito del ejemplar. */
-	private static Client depot;
+	/* Bandera que indica si se usan las copias binarias de los ejemplares. */
+	private static Boolean useCache = true;
+	/* Bandera que indica si las hormigas de cada colonia construyen sus rutas
+	 * en paralelo. */
+	private static Boolean parallelAnts = false;
+	/* Numero de clientes del ejemplar sintetico, 0 si el ejemplar se lee de 
+	 * Orders.txt. */
+	private static int generated = 0;
+	/* Distribucion de los clientes del ejemplar sintetico. */
+	private static InstanceGenerator.Layout layout = InstanceGenerator.Layout.UNIFORM;
+	/* Semilla del ejemplar sintetico. */
+	private static long seed = 1;
+	/* Bandera que indica si se guarda el ejemplar sintetico en la carpeta files. */
+	private static Boolean save = false;
+	/* Archivo de CVRPLIB del ejemplar, null si el ejemplar no se lee de un 
+	 * archivo de CVRPLIB. */
+	private static File vrpFile = null;
+	/* Capacidad de los vehiculos, 0 para usar la del ejemplar o la de 
+	 * Configurations.txt. */
+	private static int capacity = 0;
+	/* Tiempo maximo de la busqueda en milisegundos, 0 si no hay limite. */
+	private static long timeLimit = 0;
+	/* Numero maximo de soluciones que construye cada colonia, 0 si no hay 
+	 * limite. */
+	private static int maxIterations = 0;
+	/* Numero de soluciones seguidas sin mejora tras las que se detiene cada 
+	 * colonia, 0 si no hay limite. */
+	private static int stallIterations = 0;
+	/* Estadisticas de la ejecucion, desactivadas si no se pide --stats. */
+	private static SolverStats stats = SolverStats.DISABLED;
+	/* Formato en el que se escriben las rutas encontradas. */
+	private static SolutionWriter.Format format = SolutionWriter.Format.TEXT;
+	/* Carpeta o manifiesto con los archivos de pedidos del lote, null si se 
+	 * resuelve un solo ejemplar. */
+	private static File batch = null;
+	/* Numero maximo de ejemplares del lote que se resuelven al mismo tiempo. */
+	private static int workers = Runtime.getRuntime().availableProcessors();
+	/* Carpeta en la que se escriben las rutas de los ejemplares del lote. */
+	private static File results = new File("files/results");
 	
 	/**
-	 * Metodo que obtiene los IDs y las demandas de los clientes del archivo.
-	 * @param file el archivo que contiene los IDs y las demandas de los clientes.
+	 * Metodo que genera el ejemplar sintetico y, si se pidio, lo guarda en la
+	 * carpeta files como archivo de pedidos y en files/cache como copia binaria.
+	 * @return el ejemplar sintetico.
 	 */
-	private static void readOrders (File file) { 
-		idClients = new ArrayList<Integer>();
-		demands = new ArrayList<Integer>();
+	private static Instance generateInstance () {
+		InstanceGenerator generator = new InstanceGenerator(seed);
+		Instance instance = generator.generate(generated, layout);
 		
-		try {
-			BufferedReader reader = new BufferedReader(new FileReader(file.getPath()));
-			String line = reader.readLine();
-			
-			while (line != null) {
-				String[] order = line.split("-"); 
-				
-				if (order[0] != null && order[1] != null)  {
-					String idCS = order[0].replaceAll("\\s","");
-					int idClient = Integer.parseInt(idCS);
-					idClients.add(idClient);
-					
-					String demandS = order[1].replaceAll("\\s","");
-					int demand = Integer.parseInt(demandS);
-					demands.add(demand);
-				}
-				
-				line = reader.readLine();
+		if (save) {
+			String name = "G" + generated + "-" + layout.name().toLowerCase() + "-" + seed + ".txt";
+			File orders = new File("files/" + name);
+			try {
+				InstanceGenerator.write(instance, orders, new InstanceSnapshot(new File("files/cache")));
+				System.out.println("Ejemplar guardado en " + orders.getPath() + " y sus coordenadas en " +
+				                   InstanceGenerator.coordinatesFile(orders).getPath() + "\n");
+			} catch (IOException e) {
+				System.err.println("No se pudo guardar el ejemplar generado.");
 			}
-			
-			if (reader != null) {
-				reader.close();
-			}
-		} catch (IOException e) {
-			System.err.println("Error al leer el archivo.");
-			System.exit(0);
 		}
+		
+		return instance;
 	}
 	
 	/**
-	 * Metodo que obtiene los clientes de la base de datos.
+	 * Metodo que imprime las estadisticas de la ejecucion, si se pidieron. 
+	 * Con los formatos JSON y CSV se imprimen en la salida de error, para no 
+	 * mezclarlas con las rutas.
 	 */
-	private static void obtainClients () {
-		clients = new ArrayList<Client>();
-		File file = new File("files/Orders.txt");
-		readOrders(file);
+	private static void printStats () {
+		if (!stats.isEnabled()) {
+			return;
+		}
+		
+		if (format == SolutionWriter.Format.TEXT) {
+			System.out.println(stats.report());
+		} else {
+			System.err.println(stats.report());
+		}
+	}
+	
+	/**
+	 * Metodo que resuelve todos los archivos de pedidos del lote, escribe las 
+	 * rutas de cada uno en la carpeta de resultados e imprime el resumen.
+	 * @param strategy el numero de la estrategia.
+	 * @param lengthLC la longitud de las listas de candidatos.
+	 */
+	private static void solveBatch (int strategy, int lengthLC) {
+		if ((strategy == 3 || strategy == 6) && lengthLC == 0) {
+			System.err.println("\n No se proporciono una longitud " + 
+			                   "valida para la lista de candidatos. \n");
+			System.exit(0);
+		}
 		
 		try {
-			SearchBD search = new SearchBD();
-			clients = search.getClients(idClients);
-			
-			for (int i = 0; i < clients.size(); i++) {
-				Client client = clients.get(i);
-				int idClient = client.getId();
-				int demand = demands.get(i);
-				List<Pair<Integer, Integer>> distances = search.getDistances(idClient, idClients);
-				client.setDistances(distances);
-				client.setDemand(demand);
-				if (demand == 0) {
-					depot = client;
-					Boolean isDepot = true;
-					client.setIsDepot(isDepot);
-					clients.remove(i);
-					clients.add(0, client);
+			List<File> files = BatchSolver.listFiles(batch);
+			InstanceSnapshot snapshot = useCache ? new InstanceSnapshot(new File("files/cache")) : null;
+			BatchSolver solver = new BatchSolver(files, snapshot, workers, results, format);
+			List<BatchSolver.Result> resultsList = solver.solve(strategy, lengthLC, v -> {
+				if (capacity > 0) {
+					v.setCapacity(capacity);
 				}
-			}
+				v.setParallelAnts(parallelAnts);
+				v.setStopCriteria(timeLimit, maxIterations, stallIterations);
+			});
+			System.out.println(solver.summary(resultsList));
+			File summary = solver.writeSummary(resultsList);
+			System.out.println("Resumen guardado en " + summary.getPath());
+		} catch (IOException e) {
+			System.err.println("Error al leer el lote: " + e.getMessage());
+			System.exit(0);
 		} catch (SQLException e) {
 			System.err.println("Error al acceder a la base de datos.");
 			System.exit(0);
 		}
 	}
 	
+	/**
+	 * Metodo que elige la fuente del ejemplar de acuerdo a los argumentos: 
+	 * un archivo de CVRPLIB, un ejemplar sintetico o el archivo Orders.txt.
+	 * @return la fuente del ejemplar.
+	 */
+	private static InstanceSource createSource () {
+		if (vrpFile != null) {
+			return new CvrplibSource(vrpFile, capacity);
+		}
+		
+		if (generated > 0) {
+			return () -> generateInstance();
+		}
+		
+		InstanceSnapshot snapshot = useCache ? new InstanceSnapshot(new File("files/cache")) : null;
+		return new OrdersSource(new File("files/Orders.txt"), snapshot);
+	}
+	
 	/**
 	 * Metodo main de la clase principal.
 	 * @param args los argumentos que se le pasan en la terminal.
@@ -127,11 +179,199 @@ public class Solution {
                         System.exit(0);
               		}
               		break;
+              	case "--no-cache":
+              		useCache = false;
+              		break;
+              	case "-p":
+              		parallelAnts = true;
+              		break;
+              	case "-g":
+              		try {
+              			generated = Integer.parseInt(args[i + 1]);
+              			i++;
+              			if (generated < 1) {
+              				throw new NumberFormatException();
+              			}
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono un numero de " + 
+              		                       "clientes valido. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "--layout":
+              		try {
+              			layout = InstanceGenerator.layout(args[i + 1]);
+              			i++;
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono una distribucion " + 
+              		                       "de clientes valida. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "--seed":
+              		try {
+              			seed = Long.parseLong(args[i + 1]);
+              			i++;
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono una semilla valida. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "--save":
+              		save = true;
+              		break;
+              	case "-o":
+              		try {
+              			format = SolutionWriter.format(args[i + 1]);
+              			i++;
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono un formato de " + 
+              		                       "salida valido. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "-b":
+              		if (i + 1 < args.length) {
+              			batch = new File(args[i + 1]);
+              			i++;
+              		} else {
+              			System.err.println("\n No se proporciono una carpeta o " + 
+              		                       "manifiesto de pedidos. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "-j":
+              		try {
+              			workers = Integer.parseInt(args[i + 1]);
+              			i++;
+              			if (workers < 1) {
+              				throw new NumberFormatException();
+              			}
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono un numero de " + 
+              		                       "hilos valido. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "--results":
+              		if (i + 1 < args.length) {
+              			results = new File(args[i + 1]);
+              			i++;
+              		} else {
+              			System.err.println("\n No se proporciono una carpeta de " + 
+              		                       "resultados. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "--stats":
+              		stats = new SolverStats();
+              		break;
+              	case "-t":
+              		try {
+              			timeLimit = Long.parseLong(args[i + 1]);
+              			i++;
+              			if (timeLimit < 1) {
+              				throw new NumberFormatException();
+              			}
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono un tiempo " + 
+              		                       "valido. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "-i":
+              		try {
+              			maxIterations = Integer.parseInt(args[i + 1]);
+              			i++;
+              			if (maxIterations < 1) {
+              				throw new NumberFormatException();
+              			}
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono un numero de " + 
+              		                       "iteraciones valido. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "-w":
+              		try {
+              			stallIterations = Integer.parseInt(args[i + 1]);
+              			i++;
+              			if (stallIterations < 1) {
+              				throw new NumberFormatException();
+              			}
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono un numero de " + 
+              		                       "iteraciones sin mejora valido. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "-f":
+              		if (i + 1 < args.length) {
+              			vrpFile = new File(args[i + 1]);
+              			i++;
+              		} else {
+              			System.err.println("\n No se proporciono un archivo de CVRPLIB. \n");
+                        System.exit(0);
+              		}
+              		break;
+              	case "--capacity":
+              		try {
+              			capacity = Integer.parseInt(args[i + 1]);
+              			i++;
+              			if (capacity < 1) {
+              				throw new NumberFormatException();
+              			}
+              		} catch (Exception e) {
+              			System.err.println("\n No se proporciono una capacidad " + 
+              		                       "valida. \n");
+                        System.exit(0);
+              		}
+              		break;
               	}
 		}
 		
-		obtainClients();
-		VRP v = new VRP(clients, depot);
+		if (batch != null) {
+			solveBatch(strategy, lengthLC);
+			return;
+		}
+		
+		InstanceSource source = createSource();
+		Instance instance = null;
+		
+		long start = stats.start();
+		try {
+			instance = source.load();
+		} catch (IOException e) {
+			System.err.println("Error al leer el ejemplar: " + e.getMessage());
+			System.exit(0);
+		} catch (SQLException e) {
+			System.err.println("Error al acceder a la base de datos.");
+			System.exit(0);
+		}
+		
+		stats.stop(SolverStats.Phase.LOAD, start);
+		if (source instanceof OrdersSource && !((OrdersSource) source).getMissing().isEmpty()) {
+			System.err.println("Los clientes " + ((OrdersSource) source).getMissing() + 
+			                   " no estan en la base de datos y no se atienden.");
+		}
+		
+		start = stats.start();
+		VRP v = new VRP(instance.getClients(), instance.getDepot(), instance.getDistancesFuture());
+		stats.stop(SolverStats.Phase.SETUP, start);
+		if (capacity > 0 || instance.getCapacity() > 0) {
+			v.setCapacity(capacity > 0 ? capacity : instance.getCapacity());
+		}
+		v.setParallelAnts(parallelAnts);
+		v.setStopCriteria(timeLimit, maxIterations, stallIterations);
+		v.setStats(stats);
+		v.setWriter(SolutionWriter.create(format, System.out));
+		source.close();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			if (v.reportBestSoFar()) {
+				printStats();
+			}
+		}));
 		v.vrp(strategy, lengthLC);
+		printStats();
 	}
 }
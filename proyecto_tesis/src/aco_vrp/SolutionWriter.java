@@ -0,0 +1,257 @@
+package aco_vrp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Clase que escribe las rutas encontradas en un flujo de salida con buffer,
+ * ruta por ruta conforme se recorren, sin construir antes el texto completo.
+ * Hay un formato de texto para leerlo y los formatos JSON y CSV para otros
+ * programas.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public abstract class SolutionWriter {
+
+	/**
+	 * Formatos en los que se escriben las rutas.
+	 */
+	public enum Format {
+		/* Texto para leerlo, con el nombre de la estrategia. */
+		TEXT,
+		/* Un objeto JSON con la estrategia, las rutas y los totales. */
+		JSON,
+		/* Un renglon por ruta, con el vehiculo, la demanda, la distancia y
+		 * los IDs de los clientes separados por espacios. */
+		CSV
+	}
+
+	/* Tamanio del buffer de salida. */
+	private static final int BUFFER = 1 << 16;
+
+	/* Flujo de salida con buffer. */
+	protected Writer out;
+
+	/**
+	 * Constructor que crea un objeto SolutionWriter.
+	 * @param stream el flujo de salida en el que se escriben las rutas.
+	 */
+	protected SolutionWriter (OutputStream stream) {
+		out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER);
+	}
+
+	/**
+	 * Metodo que crea un objeto SolutionWriter con el formato dado.
+	 * @param format el formato de las rutas.
+	 * @param stream el flujo de salida en el que se escriben las rutas.
+	 * @return el objeto que escribe las rutas en el formato dado.
+	 */
+	public static SolutionWriter create (Format format, OutputStream stream) {
+		switch (format) {
+			case JSON:
+				return new Json(stream);
+			case CSV:
+				return new Csv(stream);
+			default:
+				return new Text(stream);
+		}
+	}
+
+	/**
+	 * Metodo que obtiene el formato a partir de su nombre, sin importar
+	 * mayusculas y minusculas.
+	 * @param name el nombre del formato: text, json o csv.
+	 * @return el formato.
+	 */
+	public static Format format (String name) {
+		return Format.valueOf(name.toUpperCase());
+	}
+
+	/**
+	 * Metodo que escribe la estrategia con la que se buscan las rutas, antes
+	 * de empezar la busqueda.
+	 * @param strategy el numero de la estrategia.
+	 * @param name el nombre de la estrategia.
+	 * @throws IOException si ocurre un error al escribir.
+	 */
+	public abstract void header (int strategy, String name) throws IOException;
+
+	/**
+	 * Metodo que escribe el inicio de las rutas encontradas.
+	 * @throws IOException si ocurre un error al escribir.
+	 */
+	public abstract void begin () throws IOException;
+
+	/**
+	 * Metodo que escribe una de las rutas encontradas.
+	 * @param vehicle el numero del vehiculo que recorre la ruta, empezando en 1.
+	 * @param route la ruta, que empieza y termina en el deposito.
+	 * @param demand la demanda atendida por la ruta.
+	 * @param distance la distancia recorrida por la ruta.
+	 * @throws IOException si ocurre un error al escribir.
+	 */
+	public abstract void route (int vehicle, List<Client> route, int demand, int distance)
+			throws IOException;
+
+	/**
+	 * Metodo que escribe los totales de las rutas encontradas y vacia el
+	 * buffer de salida.
+	 * @param totalDistance la distancia total recorrida.
+	 * @param totalDemand la demanda total atendida.
+	 * @throws IOException si ocurre un error al escribir.
+	 */
+	public abstract void end (int totalDistance, int totalDemand) throws IOException;
+
+	/**
+	 * Metodo auxiliar que escribe los IDs de los clientes de la ruta
+	 * separados por la cadena dada.
+	 */
+	protected void writeIds (List<Client> route, String separator) throws IOException {
+		for (int i = 0; i < route.size(); i++) {
+			if (i > 0) {
+				out.write(separator);
+			}
+			out.write(Integer.toString(route.get(i).getId()));
+		}
+	}
+
+	/**
+	 * Clase que escribe las rutas como texto para leerlo.
+	 */
+	private static class Text extends SolutionWriter {
+
+		Text (OutputStream stream) {
+			super(stream);
+		}
+
+		@Override
+		public void header (int strategy, String name) throws IOException {
+			out.write(name + " \n\n");
+			out.flush();
+		}
+
+		@Override
+		public void begin () throws IOException {
+			out.write("Mejores rutas encontradas: \n\n");
+		}
+
+		@Override
+		public void route (int vehicle, List<Client> route, int demand, int distance)
+				throws IOException {
+			out.write("Vehículo " + vehicle + ": \n");
+			out.write("Ruta: [");
+			writeIds(route, ", ");
+			out.write("] \n");
+			out.write("Demanda atendida: " + demand + "\n");
+			out.write("Distancia recorrida: " + distance + "\n\n");
+		}
+
+		@Override
+		public void end (int totalDistance, int totalDemand) throws IOException {
+			out.write("Distancia total recorrida: " + totalDistance + "\n");
+			out.write("Demanda total atendida: " + totalDemand + "\n\n");
+			out.flush();
+		}
+	}
+
+	/**
+	 * Clase que escribe las rutas como un objeto JSON.
+	 */
+	private static class Json extends SolutionWriter {
+
+		/* Bandera que indica si ya se abrio el objeto. */
+		private Boolean opened = false;
+		/* Numero de rutas escritas. */
+		private int routes = 0;
+
+		Json (OutputStream stream) {
+			super(stream);
+		}
+
+		@Override
+		public void header (int strategy, String name) throws IOException {
+			out.write("{\"strategy\":" + strategy + ",\"name\":\"" + escape(name) + "\"");
+			opened = true;
+		}
+
+		@Override
+		public void begin () throws IOException {
+			out.write(opened ? ",\"routes\":[" : "{\"routes\":[");
+			opened = true;
+		}
+
+		@Override
+		public void route (int vehicle, List<Client> route, int demand, int distance)
+				throws IOException {
+			out.write(routes++ > 0 ? ",\n" : "\n");
+			out.write("{\"vehicle\":" + vehicle + ",\"route\":[");
+			writeIds(route, ",");
+			out.write("],\"demand\":" + demand + ",\"distance\":" + distance + "}");
+		}
+
+		@Override
+		public void end (int totalDistance, int totalDemand) throws IOException {
+			out.write("],\n\"totalDistance\":" + totalDistance + ",\"totalDemand\":" +
+			          totalDemand + "}\n");
+			out.flush();
+		}
+
+		/**
+		 * Metodo auxiliar que escapa una cadena para escribirla en JSON.
+		 */
+		private static String escape (String s) {
+			StringBuilder escaped = new StringBuilder(s.length());
+
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c == '"' || c == '\\') {
+					escaped.append('\\').append(c);
+				} else if (c < 0x20) {
+					escaped.append(String.format("\\u%04x", (int) c));
+				} else {
+					escaped.append(c);
+				}
+			}
+
+			return escaped.toString();
+		}
+	}
+
+	/**
+	 * Clase que escribe las rutas en CSV, un renglon por ruta.
+	 */
+	private static class Csv extends SolutionWriter {
+
+		Csv (OutputStream stream) {
+			super(stream);
+		}
+
+		@Override
+		public void header (int strategy, String name) {
+			/* El CSV solo tiene las rutas. */
+		}
+
+		@Override
+		public void begin () throws IOException {
+			out.write("vehicle,demand,distance,route\n");
+		}
+
+		@Override
+		public void route (int vehicle, List<Client> route, int demand, int distance)
+				throws IOException {
+			out.write(vehicle + "," + demand + "," + distance + ",");
+			writeIds(route, " ");
+			out.write("\n");
+		}
+
+		@Override
+		public void end (int totalDistance, int totalDemand) throws IOException {
+			out.flush();
+		}
+	}
+}
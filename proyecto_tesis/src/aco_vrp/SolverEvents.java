@@ -0,0 +1,133 @@
+package aco_vrp;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Clase que agrupa los eventos de Java Flight Recorder del programa, para
+ * relacionar las fases de la busqueda con los eventos de recoleccion de
+ * basura y de bloqueos de la misma grabacion. Todos los eventos estan
+ * desactivados por omision y se activan con el perfil files/solver.jfc;
+ * desactivados cuestan casi nada: se crea el objeto del evento, que el
+ * compilador JIT puede o no eliminar, y se llaman begin y shouldCommit, pero
+ * no se escribe nada en la grabacion.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class SolverEvents {
+
+	/**
+	 * Evento de una consulta a la base de datos, ya sea de los clientes o de
+	 * un bloque de renglones de la matriz de distancias.
+	 */
+	@Name("aco_vrp.DatabaseQuery")
+	@Label("Consulta a la base de datos")
+	@Category({"ACO-VRP", "Carga"})
+	@Enabled(false)
+	@StackTrace(false)
+	public static class DatabaseQuery extends Event {
+
+		/* Tabla consultada. */
+		@Label("Tabla")
+		public String table;
+
+		/* Numero de IDs de clientes de la consulta. */
+		@Label("Clientes")
+		public int clients;
+
+		/* Numero de renglones leidos del resultado. */
+		@Label("Renglones")
+		public long rows;
+	}
+
+	/**
+	 * Evento de una solucion completa construida por una colonia.
+	 */
+	@Name("aco_vrp.ColonyIteration")
+	@Label("Iteracion de una colonia")
+	@Category({"ACO-VRP", "Busqueda"})
+	@Enabled(false)
+	@StackTrace(false)
+	public static class ColonyIteration extends Event {
+
+		/* Numero de la solucion dentro de su colonia, empezando en 1. */
+		@Label("Iteracion")
+		public int iteration;
+
+		/* Numero de rutas de la solucion. */
+		@Label("Rutas")
+		public int routes;
+
+		/* Distancia total de la solucion. */
+		@Label("Distancia")
+		public int distance;
+
+		/* Distancia de la mejor solucion de la colonia hasta ese momento. */
+		@Label("Mejor distancia")
+		public int bestDistance;
+
+		/* Tiempo que tomaron las actualizaciones de las feromonas. */
+		@Label("Tiempo de feromonas")
+		@Timespan(Timespan.NANOSECONDS)
+		public long pheromoneTime;
+
+		/* Bandera que indica si la solucion se descarto porque se termino
+		 * el tiempo de la busqueda. */
+		@Label("Descartada")
+		public boolean discarded;
+	}
+
+	/**
+	 * Evento de la mejora de una ruta con la heuristica 2-opt.
+	 */
+	@Name("aco_vrp.TwoOptRoute")
+	@Label("Heuristica 2-opt")
+	@Category({"ACO-VRP", "Busqueda local"})
+	@Enabled(false)
+	@StackTrace(false)
+	public static class TwoOptRoute extends Event {
+
+		/* Numero de clientes de la ruta, incluyendo al deposito dos veces. */
+		@Label("Clientes")
+		public int clients;
+
+		/* Distancia de la ruta antes de mejorarla. */
+		@Label("Distancia inicial")
+		public int distance;
+
+		/* Distancia que se redujo la ruta. */
+		@Label("Mejora")
+		public int gain;
+
+		/* Bandera que indica si se revisaron solo las listas de vecinos. */
+		@Label("Listas de vecinos")
+		@Description("Si solo se revisaron los movimientos con los vecinos mas cercanos")
+		public boolean neighbours;
+	}
+
+	/**
+	 * Evento de una colonia que termino su busqueda en las estrategias con
+	 * multiples colonias.
+	 */
+	@Name("aco_vrp.ColonyCompleted")
+	@Label("Colonia terminada")
+	@Category({"ACO-VRP", "Busqueda"})
+	@Enabled(false)
+	@StackTrace(false)
+	public static class ColonyCompleted extends Event {
+
+		/* Numero de soluciones completas que construyo la colonia. */
+		@Label("Iteraciones")
+		public int iterations;
+
+		/* Distancia total de la mejor solucion de la colonia. */
+		@Label("Distancia")
+		public int distance;
+	}
+}
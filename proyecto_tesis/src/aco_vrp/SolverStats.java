@@ -0,0 +1,288 @@
+package aco_vrp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase que mide en que se va el tiempo de una ejecucion: el tiempo en
+ * nanosegundos de cada fase, algunos contadores y la distancia de cada
+ * solucion completa que construyen las colonias. Los tiempos y contadores
+ * usan LongAdder, por lo que las colonias y las hormigas que se ejecutan en
+ * paralelo pueden sumar sin bloquearse. Si las colonias se ejecutan en
+ * paralelo, el tiempo de cada fase es la suma del tiempo de todos los hilos.
+ * Cuando las estadisticas estan desactivadas, ningun metodo mide ni guarda
+ * nada.
+ * @author Teresa Becerril Torres
+ * @version 1.0
+ */
+public class SolverStats {
+
+	/**
+	 * Fases de la ejecucion que se miden.
+	 */
+	public enum Phase {
+		/* Lectura del ejemplar de su fuente. */
+		LOAD("Carga del ejemplar"),
+		/* Espera de la matriz de distancias y calculo de la matriz heuristica. */
+		SETUP("Preparacion"),
+		/* Construccion de las listas de vecinos y de candidatos. */
+		CANDIDATES("Listas de candidatos"),
+		/* Construccion de las rutas de las hormigas. */
+		CONSTRUCTION("Construccion de rutas"),
+		/* Actualizaciones y evaporacion de las feromonas. */
+		PHEROMONES("Feromonas"),
+		/* Heuristica 2-opt. */
+		TWO_OPT("Heuristica 2-opt"),
+		/* Busqueda entre rutas. */
+		INTER_ROUTE("Busqueda entre rutas"),
+		/* Busqueda completa, desde que empieza hasta que se tienen las rutas. */
+		SEARCH("Busqueda total");
+
+		/* Nombre de la fase en el reporte. */
+		private String label;
+
+		Phase (String label) {
+			this.label = label;
+		}
+	}
+
+	/**
+	 * Contadores de la ejecucion.
+	 */
+	public enum Counter {
+		/* Clientes visitados por las hormigas, incluyendo el regreso al deposito. */
+		ANT_STEPS("Pasos de las hormigas"),
+		/* Movimientos evaluados por las busquedas locales. */
+		MOVES("Movimientos evaluados"),
+		/* Entradas de la matriz de feromonas que se modificaron. */
+		PHEROMONE_WRITES("Escrituras de feromonas");
+
+		/* Nombre del contador en el reporte. */
+		private String label;
+
+		Counter (String label) {
+			this.label = label;
+		}
+	}
+
+	/**
+	 * Clase que representa una solucion completa construida por una colonia.
+	 */
+	public static class Iteration {
+
+		/* Numero de la solucion dentro de su colonia, empezando en 1. */
+		private int iteration;
+		/* Tiempo desde que se crearon las estadisticas, en nanosegundos. */
+		private long elapsed;
+		/* Distancia total de la solucion. */
+		private int distance;
+		/* Distancia total de la mejor solucion encontrada hasta ese momento. */
+		private int best;
+
+		/**
+		 * Constructor que crea un objeto Iteration.
+		 * @param iteration el numero de la solucion dentro de su colonia.
+		 * @param elapsed el tiempo desde que se crearon las estadisticas.
+		 * @param distance la distancia total de la solucion.
+		 * @param best la distancia total de la mejor solucion hasta ese momento.
+		 */
+		public Iteration (int iteration, long elapsed, int distance, int best) {
+			this.iteration = iteration;
+			this.elapsed = elapsed;
+			this.distance = distance;
+			this.best = best;
+		}
+
+		/**
+		 * Metodo que regresa el numero de la solucion dentro de su colonia.
+		 * @return el numero de la solucion, empezando en 1.
+		 */
+		public int getIteration () {
+			return iteration;
+		}
+
+		/**
+		 * Metodo que regresa el tiempo en el que se termino la solucion.
+		 * @return el tiempo desde que se crearon las estadisticas, en
+		 * nanosegundos.
+		 */
+		public long getElapsed () {
+			return elapsed;
+		}
+
+		/**
+		 * Metodo que regresa la distancia total de la solucion.
+		 * @return la distancia total de la solucion.
+		 */
+		public int getDistance () {
+			return distance;
+		}
+
+		/**
+		 * Metodo que regresa la distancia de la mejor solucion encontrada
+		 * hasta que se termino esta solucion.
+		 * @return la distancia de la mejor solucion hasta ese momento.
+		 */
+		public int getBest () {
+			return best;
+		}
+	}
+
+	/* Estadisticas desactivadas, que no miden nada. */
+	public static final SolverStats DISABLED = new SolverStats(false);
+
+	/* Bandera que indica si se miden las estadisticas. */
+	private Boolean enabled;
+	/* Instante en el que se crearon las estadisticas. */
+	private long origin;
+	/* Tiempo de cada fase en nanosegundos, de acuerdo a su ordinal. */
+	private LongAdder[] times;
+	/* Valor de cada contador, de acuerdo a su ordinal. */
+	private LongAdder[] counts;
+	/* Soluciones completas en el orden en el que se terminaron. */
+	private List<Iteration> trace;
+
+	/**
+	 * Constructor que crea un objeto SolverStats que mide la ejecucion.
+	 */
+	public SolverStats () {
+		this(true);
+	}
+
+	/**
+	 * Constructor auxiliar que crea un objeto SolverStats.
+	 * @param enabled true si se miden las estadisticas.
+	 */
+	private SolverStats (Boolean enabled) {
+		this.enabled = enabled;
+		origin = System.nanoTime();
+		times = new LongAdder[Phase.values().length];
+		counts = new LongAdder[Counter.values().length];
+		trace = Collections.synchronizedList(new ArrayList<Iteration>());
+
+		for (int i = 0; i < times.length; i++) {
+			times[i] = new LongAdder();
+		}
+
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Metodo que indica si se miden las estadisticas.
+	 * @return true si se miden las estadisticas, false en otro caso.
+	 */
+	public Boolean isEnabled () {
+		return enabled;
+	}
+
+	/**
+	 * Metodo que empieza a medir una fase.
+	 * @return el instante en el que empieza la fase, que se le pasa a stop.
+	 */
+	public long start () {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Metodo que termina de medir una fase y suma su tiempo.
+	 * @param phase la fase que se midio.
+	 * @param start el instante que regreso start.
+	 */
+	public void stop (Phase phase, long start) {
+		if (enabled) {
+			times[phase.ordinal()].add(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Metodo que suma a una fase un tiempo que ya se midio.
+	 * @param phase la fase.
+	 * @param nanos el tiempo en nanosegundos.
+	 */
+	public void add (Phase phase, long nanos) {
+		if (enabled) {
+			times[phase.ordinal()].add(nanos);
+		}
+	}
+
+	/**
+	 * Metodo que suma una cantidad a un contador.
+	 * @param counter el contador.
+	 * @param amount la cantidad que se suma.
+	 */
+	public void add (Counter counter, long amount) {
+		if (enabled) {
+			counts[counter.ordinal()].add(amount);
+		}
+	}
+
+	/**
+	 * Metodo que registra una solucion completa construida por una colonia.
+	 * @param iteration el numero de la solucion dentro de su colonia.
+	 * @param distance la distancia total de la solucion.
+	 * @param best la distancia total de la mejor solucion hasta ese momento.
+	 */
+	public void trace (int iteration, int distance, int best) {
+		if (enabled) {
+			trace.add(new Iteration(iteration, System.nanoTime() - origin, distance, best));
+		}
+	}
+
+	/**
+	 * Metodo que regresa el tiempo de una fase.
+	 * @param phase la fase.
+	 * @return el tiempo de la fase en nanosegundos.
+	 */
+	public long getTime (Phase phase) {
+		return times[phase.ordinal()].sum();
+	}
+
+	/**
+	 * Metodo que regresa el valor de un contador.
+	 * @param counter el contador.
+	 * @return el valor del contador.
+	 */
+	public long getCount (Counter counter) {
+		return counts[counter.ordinal()].sum();
+	}
+
+	/**
+	 * Metodo que regresa las soluciones completas registradas.
+	 * @return una copia de las soluciones en el orden en el que se terminaron.
+	 */
+	public List<Iteration> getTrace () {
+		synchronized (trace) {
+			return new ArrayList<Iteration>(trace);
+		}
+	}
+
+	/**
+	 * Metodo que convierte las estadisticas en String.
+	 * @return las estadisticas en String.
+	 */
+	public String report () {
+		StringBuilder r = new StringBuilder("Estadisticas de la ejecucion: \n\n");
+
+		for (Phase phase : Phase.values()) {
+			r.append(String.format("%-24s %12.3f ms%n", phase.label + ":", getTime(phase) / 1e6));
+		}
+
+		r.append("\n");
+		for (Counter counter : Counter.values()) {
+			r.append(String.format("%-24s %12d%n", counter.label + ":", getCount(counter)));
+		}
+
+		r.append(String.format("%n%10s %12s %10s %10s%n", "Iteracion", "Tiempo (ms)", "Distancia", "Mejor"));
+		for (Iteration iteration : getTrace()) {
+			r.append(String.format("%10d %12.3f %10d %10d%n", iteration.getIteration(),
+					               iteration.getElapsed() / 1e6, iteration.getDistance(),
+					               iteration.getBest()));
+		}
+
+		return r.toString();
+	}
+}
@@ -1,59 +1,354 @@
 package aco_vrp;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 /**
- * Clase que mejora las rutas utilizando la heuristica 2-opt. 
+ * Clase que mejora las rutas utilizando la heuristica 2-opt.
+ * Cada movimiento se evalua en tiempo constante con las cuatro aristas que
+ * cambia, mas la diferencia de recorrer el segmento en sentido contrario
+ * (que es 0 cuando la matriz de distancias es simetrica), y se aplica
+ * invirtiendo el segmento en un arreglo con los indices de los clientes.
+ * Si el ejemplar tiene listas de vecinos, solo se revisan los movimientos que
+ * unen a un cliente con uno de sus vecinos mas cercanos, y los clientes cuyas
+ * aristas no cambiaron no se vuelven a revisar (don't-look bits).
+ * Un objeto TwoOpt reutiliza sus arreglos entre rutas, por lo que cada hilo
+ * tiene que usar su propio objeto.
  * @author Teresa Becerril Torres
  * @version 1.0
  **/
 public class TwoOpt {
-	
+
+	/**
+	 * Modo en el que se eligen los movimientos que mejoran la ruta.
+	 */
+	public enum Mode {
+		/* Se aplica cada movimiento que mejora la ruta en cuanto se encuentra. */
+		FIRST_IMPROVEMENT,
+		/* En cada pasada se aplica el movimiento que mas mejora la ruta. */
+		BEST_IMPROVEMENT
+	}
+
 	/* Instancia de la clase VRP*/
 	private VRP vrp;
-	
+	/* Matriz de distancias del ejemplar. */
+	private DistanceMatrix distances;
+	/* Modo en el que se eligen los movimientos. */
+	private Mode mode;
+	/* Indices de los vecinos mas cercanos de cada cliente, null si se 
+	 * revisan todos los pares de clientes de la ruta. */
+	private int[][] neighbours;
+	/* Estadisticas de la ejecucion. */
+	private SolverStats stats;
+	/* Posicion de cada cliente en la ruta que se mejora, -1 si no esta. Solo
+	 * se restauran las entradas de los clientes de la ruta. */
+	private int[] position;
+	/* Clientes que estan en la pila de clientes por revisar. */
+	private BitSet active;
+
 	/**
 	 * Constructor que crea un objeto TwoOpt.
 	 * @param vrp la instancia de la clase VRP.
 	 */
 	public TwoOpt (VRP vrp) {
+		this(vrp, Mode.FIRST_IMPROVEMENT);
+	}
+
+	/**
+	 * Constructor que crea un objeto TwoOpt con el modo en el que se eligen
+	 * los movimientos.
+	 * @param vrp la instancia de la clase VRP.
+	 * @param mode el modo en el que se eligen los movimientos.
+	 */
+	public TwoOpt (VRP vrp, Mode mode) {
 		this.vrp = vrp;
+		this.distances = vrp.getDistances();
+		this.mode = mode;
+		this.neighbours = vrp.getNeighbours();
+		this.stats = vrp.getStats();
 	}
-	
-	
+
 	/**
 	 * Metodo que mejora una ruta utilizando la heuristica 2-opt
 	 * @param bestRoute la ruta que se va a mejorar.
-	 * @param bestDistance la distancia de la ruta que se va a mejorar. 
+	 * @param bestDistance la distancia de la ruta que se va a mejorar.
 	 * @return la ruta mejorada.
 	 */
 	public List<Client> improveRoute (List<Client> route, int distance) {
-		List<Client> bestRoute = new ArrayList<Client>();
-		int bestDistance;
-        int improve = 1;
-		
-		while (improve != 0) {
-			
-			improve = 0;
-			
-			for (int i = 1; i < route.size(); i++) {
-				for (int j = i + 1; j < route.size() - 1; j++) {
-					bestRoute = swap(route, i, j);
-					bestDistance = vrp.calculateDistance(bestRoute);
-					
-					if (bestDistance < distance) {
-						route = bestRoute;
-						distance = bestDistance;
-						improve++;
+		int[] indexes = new int[route.size()];
+
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = route.get(i).getIndex();
+		}
+
+		SolverEvents.TwoOptRoute event = new SolverEvents.TwoOptRoute();
+		event.begin();
+		int gain = improve(indexes);
+		if (event.shouldCommit()) {
+			event.clients = indexes.length;
+			event.distance = distance;
+			event.gain = gain;
+			event.neighbours = neighbours != null;
+			event.commit();
+		}
+
+		if (gain == 0) {
+			return route;
+		}
+
+		List<Client> clients = vrp.getClients();
+		List<Client> bestRoute = new ArrayList<Client>(indexes.length);
+
+		for (int i = 0; i < indexes.length; i++) {
+			bestRoute.add(clients.get(indexes[i]));
+		}
+
+		return bestRoute;
+	}
+
+	/**
+	 * Metodo que mejora una ruta, dada por los indices de sus clientes,
+	 * utilizando la heuristica 2-opt. La ruta se modifica en el arreglo.
+	 * El primer y el ultimo cliente de la ruta no se mueven.
+	 * @param route los indices de los clientes de la ruta.
+	 * @return la distancia que se redujo la ruta.
+	 */
+	public int improve (int[] route) {
+		int n = route.length;
+		int[] forward = new int[n];
+		int[] backward = new int[n];
+		int gain = 0;
+		long evaluated = 0;
+		Boolean improve = true;
+
+		if (n < 4) {
+			return 0;
+		}
+
+		prefixSums(route, forward, backward, 0);
+
+		if (neighbours != null) {
+			return improveNeighbours(route, forward, backward);
+		}
+
+		while (improve) {
+			improve = false;
+			int bestDelta = 0;
+			int bestI = -1;
+			int bestJ = -1;
+
+			for (int i = 1; i < n - 2; i++) {
+				for (int j = i + 1; j < n - 1; j++) {
+					int delta = delta(route, forward, backward, i, j);
+					evaluated++;
+
+					if (delta < bestDelta) {
+						if (mode == Mode.FIRST_IMPROVEMENT) {
+							reverse(route, i, j);
+							prefixSums(route, forward, backward, i - 1);
+							gain -= delta;
+							improve = true;
+						} else {
+							bestDelta = delta;
+							bestI = i;
+							bestJ = j;
+						}
+					}
+				}
+			}
+
+			if (bestI != -1) {
+				reverse(route, bestI, bestJ);
+				prefixSums(route, forward, backward, bestI - 1);
+				gain -= bestDelta;
+				improve = true;
+			}
+		}
+
+		stats.add(SolverStats.Counter.MOVES, evaluated);
+		return gain;
+	}
+
+	/**
+	 * Metodo auxiliar que mejora la ruta revisando solo los movimientos que
+	 * agregan una arista entre un cliente y uno de sus vecinos. Se revisan
+	 * los clientes activos hasta que no queda ninguno, y al aplicar un
+	 * movimiento se activan los extremos de las aristas que cambiaron.
+	 * @param route los indices de los clientes de la ruta.
+	 * @param forward las distancias acumuladas de la ruta.
+	 * @param backward las distancias acumuladas de la ruta en sentido contrario.
+	 * @return la distancia que se redujo la ruta.
+	 */
+	private int improveNeighbours (int[] route, int[] forward, int[] backward) {
+		int n = route.length;
+		int[] stack = new int[n];
+		int top = 0;
+		int gain = 0;
+
+		if (position == null) {
+			position = new int[distances.size()];
+			active = new BitSet(distances.size());
+			Arrays.fill(position, -1);
+		}
+
+		for (int k = 1; k < n - 1; k++) {
+			position[route[k]] = k;
+		}
+
+		for (int k = n - 1; k >= 0; k--) {
+			if (!active.get(route[k])) {
+				active.set(route[k]);
+				stack[top++] = route[k];
+			}
+		}
+
+		while (top > 0) {
+			int x = stack[--top];
+			active.clear(x);
+			int[] move = null;
+
+			if (x == route[0]) {
+				move = searchMove(route, forward, backward, position, 0, true);
+			}
+			if (move == null && x == route[n - 1]) {
+				move = searchMove(route, forward, backward, position, n - 1, false);
+			}
+			if (move == null && position[x] > 0) {
+				move = searchMove(route, forward, backward, position, position[x], true);
+				if (move == null) {
+					move = searchMove(route, forward, backward, position, position[x], false);
+				}
+			}
+
+			if (move != null) {
+				int i = move[0];
+				int j = move[1];
+				int[] ends = {route[i - 1], route[i], route[j], route[j + 1]};
+				gain -= move[2];
+				reverse(route, i, j);
+				prefixSums(route, forward, backward, i - 1);
+				for (int k = i; k <= j; k++) {
+					position[route[k]] = k;
+				}
+				for (int c : ends) {
+					if (!active.get(c)) {
+						active.set(c);
+						stack[top++] = c;
+					}
+				}
+			}
+		}
+
+		for (int k = 1; k < n - 1; k++) {
+			position[route[k]] = -1;
+		}
+
+		return gain;
+	}
+
+	/**
+	 * Metodo auxiliar que busca un movimiento que mejore la ruta y que
+	 * agregue una arista entre el cliente de la posicion k y uno de sus
+	 * vecinos.
+	 * @param route los indices de los clientes de la ruta.
+	 * @param forward las distancias acumuladas de la ruta.
+	 * @param backward las distancias acumuladas de la ruta en sentido contrario.
+	 * @param position la posicion de cada cliente en la ruta, -1 si no esta.
+	 * @param k la posicion del cliente.
+	 * @param out true si se cambia la arista que sale del cliente, false si
+	 * se cambia la arista que llega al cliente.
+	 * @return las posiciones i, j del segmento que se invierte y el cambio en
+	 * la distancia, o null si ningun movimiento mejora la ruta.
+	 */
+	private int[] searchMove (int[] route, int[] forward, int[] backward, int[] position,
+			                  int k, Boolean out) {
+		int n = route.length;
+		int[] best = null;
+		int evaluated = 0;
+
+		if (out ? k > n - 3 : k < 2) {
+			return null;
+		}
+
+		for (int c : neighbours[route[k]]) {
+			int p = position[c];
+			int i = out ? k + 1 : p;
+			int j = out ? p : k - 1;
+
+			if (p > 0 && i >= 1 && i < j) {
+				int delta = delta(route, forward, backward, i, j);
+				evaluated++;
+				if (delta < 0 && (best == null || delta < best[2])) {
+					best = new int[] {i, j, delta};
+					if (mode == Mode.FIRST_IMPROVEMENT) {
+						break;
 					}
 				}
 			}
 		}
-		
-		return route;
+
+		stats.add(SolverStats.Counter.MOVES, evaluated);
+		return best;
+	}
+
+	/**
+	 * Metodo que calcula el cambio en la distancia de la ruta al invertir el
+	 * segmento entre las posiciones i y j.
+	 * @param route los indices de los clientes de la ruta.
+	 * @param forward las distancias acumuladas de la ruta.
+	 * @param backward las distancias acumuladas de la ruta en sentido contrario.
+	 * @param i la posicion del primer cliente del segmento.
+	 * @param j la posicion del ultimo cliente del segmento.
+	 * @return el cambio en la distancia, negativo si la ruta mejora.
+	 */
+	public int delta (int[] route, int[] forward, int[] backward, int i, int j) {
+		int a = route[i - 1];
+		int b = route[i];
+		int c = route[j];
+		int e = route[j + 1];
+		int added = distances.distance(a, c) + distances.distance(b, e);
+		int removed = distances.distance(a, b) + distances.distance(c, e);
+		int segment = (backward[j] - backward[i]) - (forward[j] - forward[i]);
+		return added - removed + segment;
+	}
+
+	/**
+	 * Metodo que invierte el segmento de la ruta entre las posiciones i y j.
+	 * @param route los indices de los clientes de la ruta.
+	 * @param i la posicion del primer cliente del segmento.
+	 * @param j la posicion del ultimo cliente del segmento.
+	 */
+	public static void reverse (int[] route, int i, int j) {
+		while (i < j) {
+			int aux = route[i];
+			route[i] = route[j];
+			route[j] = aux;
+			i++;
+			j--;
+		}
+	}
+
+	/**
+	 * Metodo auxiliar que calcula las distancias acumuladas de la ruta, en
+	 * ambos sentidos, a partir de la posicion from.
+	 * @param route los indices de los clientes de la ruta.
+	 * @param forward las distancias acumuladas, forward[k] es la distancia
+	 * del cliente 0 al cliente k.
+	 * @param backward las distancias acumuladas recorriendo cada arista en
+	 * sentido contrario.
+	 * @param from la primera posicion que cambio.
+	 */
+	private void prefixSums (int[] route, int[] forward, int[] backward, int from) {
+		from = Math.max(0, from);
+
+		for (int k = from; k < route.length - 1; k++) {
+			forward[k + 1] = forward[k] + distances.distance(route[k], route[k + 1]);
+			backward[k + 1] = backward[k] + distances.distance(route[k + 1], route[k]);
+		}
 	}
-	
+
 	/**
 	 * Metodo que realiza un intercambio 2-opt valido entre el cliente 1 y cliente 2.
 	 * @param route la ruta a la cual se le va aplicar el intercambio.
@@ -64,20 +359,20 @@ public class TwoOpt {
 	public List<Client> swap (List<Client> route, int i, int j) {
 		List<Client> newRoute = new ArrayList<Client>();
 		int r = 0;
-		
+
 		for (int k = 0; k <= i - 1; k++) {
 			newRoute.add(route.get(k));
 		}
-		
+
 		for (int k = i; k <= j; k++) {
 			newRoute.add(route.get(j - r));
 			r++;
 		}
-		
+
 		for (int k = j + 1; k < route.size(); k++) {
 			newRoute.add(route.get(k));
 		}
-		
+
 		return newRoute;
 	}
 }
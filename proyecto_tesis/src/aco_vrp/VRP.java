@@ -7,8 +7,14 @@ import java.io.IOException;
 import java.lang.Math;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import org.javatuples.Pair;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * Clase que utiliza la metaheurística ACO y las estrategias 
@@ -31,20 +37,64 @@ public class VRP {
 	private double tau0;
 	/* Probabilidad de seleccionar una ruta corta. */
 	private double q0;
-	/* Probabilidad de seleccionar una ruta corta con niveles altos de feromonas*/
-	private int q;
 	/* Lista de clientes del ejemplar. */
 	private List<Client> clients;
+	/* Registro de los clientes del ejemplar. */
+	private ClientRegistry registry;
 	/* Deposito del ejemplar. */
 	private Client depot;
 	/* Colonia de hormigas. */
 	private ACO aco;
 	/* Colonias de hormigas. */
 	private List<ACO> colonies;
-	/* Generador de numeros aleatorios. */
-	private Random random;
-	/* Lista que nos indica cuantas veces fueron visitados los clientes. */
-	private List<Integer> visits;
+	/* Numero de hilos con los que se ejecutan las colonias. */
+	private int threads;
+	/* Cantidad de feromonas que se evapora en cada iteracion. */
+	private double evaporation;
+	/* Modo en el que la heuristica 2-opt elige los movimientos. */
+	private TwoOpt.Mode twoOptMode;
+	/* Numero de vecinos mas cercanos de cada cliente que revisan las 
+	 * busquedas locales, 0 si revisan a todos los clientes. */
+	private int neighbours;
+	/* Indices de los vecinos mas cercanos de cada cliente. */
+	private int[][] neighbourList;
+	/* Indices de los clientes ordenados por su distancia al deposito. */
+	private int[] depotOrder;
+	/* Listas de candidatos en las que las hormigas eligen primero al 
+	 * siguiente cliente, null si eligen entre todos los clientes. */
+	private int[][] selectionCandidates;
+	/* Bandera que indica si las hormigas de una colonia construyen sus rutas 
+	 * en paralelo. */
+	private Boolean parallelAnts;
+	/* Pool de hilos en el que las hormigas construyen sus rutas en paralelo. */
+	private ForkJoinPool antPool;
+	/* Matriz de distancias entre cada par de clientes. */
+	private DistanceMatrix distances;
+	/* Matriz de la inversa de la distancia elevada a beta. */
+	private double[][] heuristic;
+	/* Tiempo maximo de la busqueda en nanosegundos, 0 si no hay limite. */
+	private long timeLimit;
+	/* Numero maximo de soluciones que construye cada colonia, 0 si no hay 
+	 * limite. */
+	private int maxIterations;
+	/* Numero de soluciones seguidas sin mejora tras las que una colonia se 
+	 * detiene, 0 si no hay limite. */
+	private int stallIterations;
+	/* Instante, de acuerdo a System.nanoTime, en el que se termina el tiempo 
+	 * de la busqueda. */
+	private long deadline;
+	/* Mejores rutas encontradas hasta el momento por alguna colonia. */
+	private List<List<Client>> bestSoFar;
+	/* Distancia total de las mejores rutas encontradas hasta el momento. */
+	private int bestSoFarDistance;
+	/* Bandera que indica si ya se imprimieron las rutas encontradas. */
+	private Boolean reported;
+	/* Rutas que se escribieron como resultado de la busqueda. */
+	private List<List<Client>> solution;
+	/* Estadisticas de la ejecucion. */
+	private SolverStats stats = SolverStats.DISABLED;
+	/* Objeto que escribe las rutas encontradas en la salida estandar. */
+	private SolutionWriter writer = SolutionWriter.create(SolutionWriter.Format.TEXT, System.out);
 	
 	/**
 	 * Constructor que crea un objeto VRP.
@@ -52,13 +102,215 @@ public class VRP {
 	 * @param depot el deposito del ejemplar.
 	 */
 	public VRP (List<Client> clients, Client depot) {
+		this(clients, depot, (DistanceMatrix) null);
+	}
+	
+	/**
+	 * Constructor que crea un objeto VRP con la matriz de distancias ya 
+	 * construida.
+	 * @param clients la lista de clientes del ejemplar.
+	 * @param depot el deposito del ejemplar.
+	 * @param distances la matriz de distancias del ejemplar, si es null se 
+	 * construye a partir de las listas de distancias de los clientes.
+	 */
+	public VRP (List<Client> clients, Client depot, DistanceMatrix distances) {
+		this(clients, depot, CompletableFuture.completedFuture(distances));
+	}
+	
+	/**
+	 * Constructor que crea un objeto VRP mientras la matriz de distancias se 
+	 * sigue cargando. La lectura de las configuraciones y la inicializacion 
+	 * de las feromonas se realizan antes de esperar a la matriz.
+	 * @param clients la lista de clientes del ejemplar.
+	 * @param depot el deposito del ejemplar.
+	 * @param distances la matriz de distancias del ejemplar que se esta 
+	 * cargando, si su valor es null se construye a partir de las listas de 
+	 * distancias de los clientes.
+	 */
+	public VRP (List<Client> clients, Client depot, Future<DistanceMatrix> distances) {
 		this.clients = clients;
 		this.depot = depot;
+		registry = new ClientRegistry(clients);
+		threads = Runtime.getRuntime().availableProcessors();
+		evaporation = 0.2;
+		twoOptMode = TwoOpt.Mode.FIRST_IMPROVEMENT;
+		neighbours = 20;
+		parallelAnts = false;
+		reported = false;
 		readConfigurations();
-		q = 0; 
 		aco = new ACO(m, Q, alpha, tau0, clients);
-		random = new Random();
-		setUpVisits();
+		obtainDistances(distances);
+	}
+	
+	/**
+	 * Metodo que espera a que se cargue la matriz de distancias y calcula la 
+	 * matriz heuristica.
+	 * @param distancesF la matriz de distancias que se esta cargando.
+	 */
+	private void obtainDistances (Future<DistanceMatrix> distancesF) {
+		try {
+			distances = distancesF.get();
+		} catch (InterruptedException | ExecutionException e) {
+			System.err.println("Error al obtener las distancias entre los clientes.");
+			System.exit(0);
+		}
+		
+		if (distances == null) {
+			distances = new DistanceMatrix(registry);
+		}
+		
+		heuristic = distances.heuristic(beta);
+		aco.setHeuristic(heuristic);
+	}
+	
+	/**
+	 * Metodo que regresa los indices de los vecinos mas cercanos de cada 
+	 * cliente, sin incluir al deposito, que revisan las busquedas locales. 
+	 * Las listas se construyen la primera vez que se piden.
+	 * @return los indices de los vecinos mas cercanos de cada cliente, o 
+	 * null si las busquedas locales revisan a todos los clientes.
+	 */
+	public synchronized int[][] getNeighbours () {
+		if (neighbourList == null && neighbours > 0) {
+			long start = stats.start();
+			Candidates candidates = new Candidates(neighbours);
+			neighbourList = candidates.obtainNeighbours(distances, depot.getIndex());
+			stats.stop(SolverStats.Phase.CANDIDATES, start);
+		}
+		
+		return neighbourList;
+	}
+	
+	/**
+	 * Metodo que regresa los indices de los clientes ordenados por su 
+	 * distancia al deposito, sin incluir al deposito. Como las distancias no 
+	 * cambian, el orden se calcula la primera vez que se pide.
+	 * @return los indices de los clientes ordenados por distancia al deposito.
+	 */
+	public synchronized int[] getDepotOrder () {
+		if (depotOrder == null) {
+			long start = stats.start();
+			depotOrder = Candidates.order(distances, depot.getIndex());
+			stats.stop(SolverStats.Phase.CANDIDATES, start);
+		}
+		
+		return depotOrder;
+	}
+	
+	/**
+	 * Metodo que indica si las hormigas de cada colonia construyen sus rutas 
+	 * en paralelo.
+	 * @param parallelAnts true si las hormigas construyen sus rutas en 
+	 * paralelo, false si las construyen una por una.
+	 */
+	public void setParallelAnts (Boolean parallelAnts) {
+		this.parallelAnts = parallelAnts;
+	}
+
+	/**
+	 * Metodo que asigna los criterios con los que se detiene la busqueda. 
+	 * Mientras no se cumpla alguno, cada colonia vuelve a construir una 
+	 * solucion completa conservando sus feromonas, y se queda con la mejor. 
+	 * Si los tres valores son 0 cada colonia construye una sola solucion.
+	 * @param millis el tiempo maximo de la busqueda en milisegundos, 0 si no 
+	 * hay limite.
+	 * @param iterations el numero maximo de soluciones que construye cada 
+	 * colonia, 0 si no hay limite.
+	 * @param window el numero de soluciones seguidas sin mejora tras las que 
+	 * una colonia se detiene, 0 si no hay limite.
+	 */
+	public void setStopCriteria (long millis, int iterations, int window) {
+		timeLimit = millis * 1000000L;
+		maxIterations = iterations;
+		stallIterations = window;
+	}
+	
+	/**
+	 * Metodo que asigna las estadisticas en las que se mide la ejecucion.
+	 * @param stats las estadisticas de la ejecucion.
+	 */
+	public void setStats (SolverStats stats) {
+		this.stats = stats;
+		aco.setStats(stats);
+	}
+	
+	/**
+	 * Metodo que regresa las estadisticas en las que se mide la ejecucion.
+	 * @return las estadisticas de la ejecucion, desactivadas si no se miden.
+	 */
+	public SolverStats getStats () {
+		return stats;
+	}
+	
+	/**
+	 * Metodo que regresa las rutas que se escribieron como resultado de la 
+	 * busqueda.
+	 * @return las rutas encontradas, null si aun no se escriben.
+	 */
+	public synchronized List<List<Client>> getSolution () {
+		return solution;
+	}
+	
+	/**
+	 * Metodo que asigna el formato en el que se escriben las rutas 
+	 * encontradas.
+	 * @param writer el objeto que escribe las rutas.
+	 */
+	public void setWriter (SolutionWriter writer) {
+		this.writer = writer;
+	}
+	
+	/**
+	 * Metodo que cambia la capacidad de los vehiculos indicada en
+	 * Configurations.txt por la del ejemplar.
+	 * @param capacity la nueva capacidad de los vehiculos.
+	 */
+	public void setCapacity (int capacity) {
+		Q = capacity;
+		aco.createAnts(m, Q, depot);
+	}
+	
+	/**
+	 * Metodo que hace que las hormigas elijan al siguiente cliente primero 
+	 * entre los clientes de su lista de candidatos, y solo entre todos los 
+	 * clientes si no pueden visitar a ninguno de ellos.
+	 * @param length la longitud de las listas de candidatos, 0 para elegir 
+	 * siempre entre todos los clientes.
+	 */
+	public void setSelectionCandidates (int length) {
+		if (length > 0) {
+			long start = stats.start();
+			Candidates candidates = new Candidates(length);
+			selectionCandidates = candidates.obtainNeighbours(distances, depot.getIndex());
+			stats.stop(SolverStats.Phase.CANDIDATES, start);
+		} else {
+			selectionCandidates = null;
+		}
+	}
+	
+	/**
+	 * Metodo que regresa la colonia de hormigas de las estrategias con una 
+	 * sola colonia.
+	 * @return la colonia de hormigas.
+	 */
+	public ACO getColony () {
+		return aco;
+	}
+	
+	/**
+	 * Metodo que regresa la lista de clientes del ejemplar.
+	 * @return la lista de clientes del ejemplar.
+	 */
+	public List<Client> getClients () {
+		return clients;
+	}
+	
+	/**
+	 * Metodo que regresa la matriz de distancias entre cada par de clientes.
+	 * @return la matriz de distancias entre cada par de clientes.
+	 */
+	public DistanceMatrix getDistances () {
+		return distances;
 	}
 	
 	/**
@@ -132,6 +384,50 @@ public class VRP {
 		              			System.err.println("\n No se proporciono una probabilidad de " + 
 		              		                       "seleccionar una ruta corta valida. \n");
 		                        System.exit(0);
+		              		}
+							break;
+						case "threads":
+							try {
+		              			threads = Integer.parseInt(valor);
+		              			if (threads < 1) {
+		              				throw new NumberFormatException();
+		              			}
+		              		} catch (Exception e) {
+		              			System.err.println("\n No se proporciono un numero de " + 
+		              		                       "hilos valido. \n");
+		                        System.exit(0);
+		              		}
+							break;
+						case "evaporation":
+							try {
+		              			evaporation = Double.parseDouble(valor);
+		              		} catch (Exception e) {
+		              			System.err.println("\n No se proporciono una cantidad de " + 
+		              		                       "evaporacion de feromonas valida. \n");
+		                        System.exit(0);
+		              		}
+							break;
+						case "twoOpt":
+							if (valor.equals("first")) {
+								twoOptMode = TwoOpt.Mode.FIRST_IMPROVEMENT;
+							} else if (valor.equals("best")) {
+								twoOptMode = TwoOpt.Mode.BEST_IMPROVEMENT;
+							} else {
+		              			System.err.println("\n No se proporciono un modo valido " + 
+		              		                       "para la heuristica 2-opt. \n");
+		                        System.exit(0);
+							}
+							break;
+						case "neighbours":
+							try {
+		              			neighbours = Integer.parseInt(valor);
+		              			if (neighbours < 0) {
+		              				throw new NumberFormatException();
+		              			}
+		              		} catch (Exception e) {
+		              			System.err.println("\n No se proporciono un numero de " + 
+		              		                       "vecinos valido. \n");
+		                        System.exit(0);
 		              		}
 							break;
 						default:
@@ -155,51 +451,28 @@ public class VRP {
 	
 	/**
 	 * Metodo que inicializa la lista que nos indica cuantas veces fueron visitados
-	 * los clientes.
+	 * los clientes por la colonia.
+	 * @param colony la colonia de hormigas.
 	 */
-	public void setUpVisits () {
-		visits = new ArrayList<Integer>();
-		
-		for (int i = 0; i < clients.size(); i++) {
-			visits.add(0);
-		}
+	public void setUpVisits (ACO colony) {
+		colony.resetVisits();
 	}
 	
-	private class EvaporateDaemon extends Thread {
-		
-		/* Colonia de hormigas. */
-		private ACO aco;
-		/* Cantidad de feromonas que se va a evaporar constantemente */
-		private double delta;
-		/* Bandera para detener el hilo. */
-		private Boolean stopDeamon;
-		
-		/**
-		 * Constructor que crea un EvaporateDaemon.
-		 * @param aco la colonia de hormigas.
-		 */
-		public EvaporateDaemon (ACO aco, double delta) {
-			this.aco = aco;
-			this.delta = delta;
-			stopDeamon = true;
-		}
+	/**
+	 * Metodo que indica si la colonia ya visito a todos los clientes.
+	 * @param colony la colonia de hormigas.
+	 * @return true si todos los clientes fueron visitados, false en otro caso.
+	 */
+	public Boolean isVisitedAll (ACO colony) {
+		int[] visits = colony.getVisits();
 		
-		/**
-		 * Metodo que corre el hilo.
-		 */
-		public void run () {
-			try{     
-				while(stopDeamon) {
-					aco.evaporateP(delta);
-				}
-            } catch (Exception e) {
-                System.err.println(e.toString());
-            }
+		for (int i = 0; i < visits.length; i++) {
+			if (visits[i] == 0) {
+				return false;
+			}
 		}
 		
-		public void stopDaemon () {
-			stopDeamon = false;
-		}
+		return true;
 	}
 	
 	/**
@@ -208,16 +481,7 @@ public class VRP {
 	 * @return el cliente que se busca, null en otro caso.
 	 */
 	public Client searchClient (int idClient) {
-		Client client = null;
-		
-		for (Client c : clients) {
-			int id = c.getId();
-			if (idClient == id) {
-				client = c;
-			}
-		}
-		
-		return client;
+		return registry.getClient(idClient);
 	}
 	
 	/**
@@ -226,18 +490,7 @@ public class VRP {
 	 * @return el indice del cliente en la lista de clientes.
 	 */
 	public int searchIndexClient(Client client) {
-		int idClient = client.getId();
-		int indexC = -1;
-		
-		for (int i = 0; i < clients.size(); i ++) {
-			Client c = clients.get(i);
-			int idC = c.getId();
-			if (idClient == idC) {
-				indexC = i;
-			}
-		}
-		
-		return indexC;
+		return client.getIndex();
 	}
 	
 	/**
@@ -251,8 +504,8 @@ public class VRP {
 		for (int i = 0; i < route.size(); i++) {
 			if (i < route.size() - 1) {
 				Client client1 = route.get(i);
-				int idClient2 = route.get(i + 1).getId(); 
-				distanceR += client1.searchDistance(idClient2);
+				Client client2 = route.get(i + 1); 
+				distanceR += distances.distance(client1, client2);
 			}
 		}
 		
@@ -284,13 +537,11 @@ public class VRP {
 	 * distancia con el cliente.
 	 */
 	public List<Integer> getOrderedDist (Client client) {
-		List<Pair<Integer, Integer>> distances = client.getDistances();
-		List<Integer> idDistances  = new ArrayList<Integer>();
+		int[] order = Candidates.order(distances, client.getIndex());
+		List<Integer> idDistances  = new ArrayList<Integer>(order.length);
 		
-		for (int i = 0; i < distances.size(); i++) {
-			Pair<Integer, Integer> distance = distances.get(i);
-			int idClient = distance.getValue0();
-			idDistances.add(idClient);
+		for (int i = 0; i < order.length; i++) {
+			idDistances.add(clients.get(order[i]).getId());
 		}
 		
 		return idDistances;
@@ -299,11 +550,12 @@ public class VRP {
 	/**
 	 * Metodo que selecciona al siguiente cliente a visitar utilizando la lista de 
 	 * candidatos del cliente actual de la hormiga.
+	 * @param colony la colonia de la hormiga.
 	 * @param ant la hormiga que va a seleccionar al siguiente cliente.
 	 * @return el siguiente cliente a visitar. 
 	 */
-	public Client selectNextClient (Ant ant) {
-		List<Client> memory = ant.getMemory();
+	public Client selectNextClient (ACO colony, Ant ant) {
+		int[] visits = colony.getVisits();
 		int capacity = ant.getCapacity();
 		Client currentClient = ant.getCurrentClient();
 		List<Integer> candidates = currentClient.getCandidates();
@@ -314,10 +566,10 @@ public class VRP {
 			Client client = searchClient(idClient);
 			int index = searchIndexClient(client);
 			int demand = client.getDemand();
-			int numVisits = visits.get(index);
+			int numVisits = visits[index];
 			
 			if (numVisits == 0) {
-				if (!memory.contains(client)) {
+				if (!ant.isVisited(client)) {
 					if (demand <= capacity) {
 						nextClient = client;
 						break;
@@ -334,16 +586,18 @@ public class VRP {
 	/**
 	 * Metodo que selecciona al siguiente cliente a visitar utilizando la lista de 
 	 * candidatos del deposito de la hormiga.
+	 * @param colony la colonia de la hormiga.
 	 * @param ant la hormiga que va a seleccionar al siguiente cliente.
 	 * @return el siguiente cliente a visitar. 
 	 */
-	public Client selectNextCD (Ant ant) {
-		int numVisits = visits.get(0);
+	public Client selectNextCD (ACO colony, Ant ant) {
+		int[] visits = colony.getVisits();
+		int numVisits = visits[0];
 		List<Integer> candidates = depot.getCandidates();	
 		Client nextClient = null;
 		
 		if (numVisits == 0) {
-			int indexLC = random.nextInt(candidates.size());
+			int indexLC = ant.getRandom().nextInt(candidates.size());
 			int idClient = candidates.get(indexLC);
 			nextClient = searchClient(idClient);
 		} else {
@@ -351,7 +605,7 @@ public class VRP {
 				int idClient = candidates.get(i);
 				Client client = searchClient(idClient);
 				int index = searchIndexClient(client);
-				int numVC = visits.get(index);
+				int numVC = visits[index];
 				
 				if (numVC == 0) {
 					nextClient = client;
@@ -361,16 +615,9 @@ public class VRP {
 		}
 		
 		if (nextClient == null) {
-			List<Integer> idDistances = getOrderedDist(depot);
-			
-			for (int i = 0; i < idDistances.size(); i++) {
-				int idClient = idDistances.get(i);
-				Client client = searchClient(idClient);
-				int index = searchIndexClient(client);
-				int numVC = visits.get(index);
-				
-				if (numVC == 0) {
-					nextClient = client;
+			for (int index : getDepotOrder()) {
+				if (visits[index] == 0) {
+					nextClient = clients.get(index);
 					break;
 				}
 			}
@@ -441,78 +688,163 @@ public class VRP {
 			}
 		}
 		
-		return bestRoute;
+		/* La memoria de las hormigas se reutiliza en la siguiente ruta. */
+		return bestRoute == null ? null : new ArrayList<Client>(bestRoute);
 	}
 	
 	/**
 	 * Metodo que actualiza el numero de veces que el cliente ha sido visitado.
+	 * @param colony la colonia que visito la ruta.
 	 * @param route la ruta que ha sido visitada.
 	 */
-	public void updateVisits (List<Client> route) {
+	public void updateVisits (ACO colony, List<Client> route) {
+		int[] visits = colony.getVisits();
+		
 		for (int i = 0; i < route.size(); i++) {
 			Client client = route.get(i);
 			int index = searchIndexClient(client);
-			int numVisits = visits.get(index);
-			visits.remove(index);
-			visits.add(index, numVisits + 1);
+			visits[index]++;
 		}
 	}
 	
 	/**
-	 * Metodo que busca la mejor ruta utilizando las listas de candidatos de los clientes.
-	 * @return la mejor ruta encontrada.
+	 * Metodo que hace que todas las hormigas de la colonia construyan su 
+	 * ruta. Si las hormigas construyen sus rutas en paralelo, cada una tiene 
+	 * su propio generador de numeros aleatorios y el metodo espera a que 
+	 * todas terminen antes de regresar, para que las feromonas no cambien 
+	 * mientras se construyen las rutas.
+	 * @param colony la colonia de hormigas.
+	 * @param candidates true si las hormigas eligen con las listas de 
+	 * candidatos de los clientes, false si eligen con las feromonas.
 	 */
-	public List<Client> selectClientCL (ACO colony) {
+	public void constructRoutes (ACO colony, Boolean candidates) {
 		List<Ant> ants = colony.getAnts();
-		Boolean finishC = false; 
+		long start = stats.start();
 		
-		while (!finishC) {
-			for (int i = 0; i < ants.size(); i++) {
-				Ant ant = ants.get(i);
-				Client currentClient = ant.getCurrentClient();
-				Boolean finishA = ant.getFinish();
-				
-				if (!finishA) {
-					Client client = null;
-						if (currentClient.getId() == depot.getId()) {
-							client = selectNextCD(ant);
-						} else {
-							client = selectNextClient(ant);
-							
-						}
-						
-						
-						if (client != null) {
-							ant.addCurrentClient(client);
-							int capacity = ant.getCapacity();
-								
-							if (capacity == 0) {
-								ant.addCurrentClient(depot);
-								ant.setFinish(true);
-							}
-						} else {
-							ant.addCurrentClient(depot);
-							ant.setFinish(true);
-						}
-				}
+		if (parallelAnts) {
+			colony.splitRandom();
+			ForkJoinPool pool = getAntPool();
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			
+			for (Ant ant : ants) {
+				tasks.add(pool.submit(() -> {
+					while (!ant.getFinish()) {
+						advanceAnt(colony, ant, candidates);
+					}
+				}));
 			}
 			
-			Boolean aux = true;
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		} else {
+			Boolean finishC = false;
 			
-			for (int i = 0; i < ants.size(); i++) {
-				Ant ant = ants.get(i);
-				Boolean finishA = ant.getFinish();
-				aux = aux && finishA;
+			while (!finishC) {
+				finishC = true;
+				
+				for (int i = 0; i < ants.size(); i++) {
+					Ant ant = ants.get(i);
+					if (!ant.getFinish()) {
+						advanceAnt(colony, ant, candidates);
+					}
+					finishC = finishC && ant.getFinish();
+				}
+			}
+		}
+		
+		if (stats.isEnabled()) {
+			for (Ant ant : ants) {
+				stats.add(SolverStats.Counter.ANT_STEPS, ant.getMemory().size() - 1);
 			}
+		}
+		stats.stop(SolverStats.Phase.CONSTRUCTION, start);
+	}
+	
+	/**
+	 * Metodo auxiliar que hace que la hormiga visite al siguiente cliente, o 
+	 * que regrese al deposito si ya no puede visitar a ningun cliente o ya 
+	 * no tiene capacidad.
+	 * @param colony la colonia de hormigas.
+	 * @param ant la hormiga.
+	 * @param candidates true si la hormiga elige con las listas de candidatos 
+	 * de los clientes, false si elige con las feromonas.
+	 */
+	private void advanceAnt (ACO colony, Ant ant, Boolean candidates) {
+		Client client = null;
+		
+		if (!candidates) {
+			client = selectClientJ(colony, ant);
+		} else if (ant.getCurrentClient().getId() == depot.getId()) {
+			client = selectNextCD(colony, ant);
+		} else {
+			client = selectNextClient(colony, ant);
+		}
+		
+		if (client != null) {
+			ant.addCurrentClient(client);
+			int capacity = ant.getCapacity();
 			
-			finishC = aux;
+			if (capacity == 0) {
+				ant.addCurrentClient(depot);
+				ant.setFinish(true);
+			}
+		} else {
+			ant.addCurrentClient(depot);
+			ant.setFinish(true);
+		}
+	}
+	
+	/**
+	 * Metodo auxiliar que regresa el pool de hilos en el que las hormigas 
+	 * construyen sus rutas en paralelo, y lo crea la primera vez.
+	 * @return el pool de hilos de las hormigas.
+	 */
+	private synchronized ForkJoinPool getAntPool () {
+		if (antPool == null) {
+			antPool = new ForkJoinPool(threads);
 		}
 		
+		return antPool;
+	}
+	
+	/**
+	 * Metodo auxiliar que termina el pool de hilos de las hormigas, si se 
+	 * creo, para que sus hilos no sigan vivos despues de la busqueda. Si se 
+	 * vuelve a buscar, se crea un pool nuevo.
+	 */
+	private synchronized void shutdownAntPool () {
+		if (antPool != null) {
+			antPool.shutdown();
+			antPool = null;
+		}
+	}
+	
+	/**
+	 * Metodo que busca la mejor ruta utilizando las listas de candidatos de los clientes.
+	 * @return la mejor ruta encontrada.
+	 */
+	public List<Client> selectClientCL (ACO colony) {
+		List<Ant> ants = colony.getAnts();
+		constructRoutes(colony, true);
+		
 		List<Client> route = obtainBestRoute(ants);
-		updateVisits(route);
+		updateVisits(colony, route);
 		return route;
 	}
 	
+	/**
+	 * Metodo auxiliar que suma el tiempo de una actualizacion de las 
+	 * feromonas a la colonia y a las estadisticas.
+	 * @param colony la colonia cuyas feromonas se actualizaron.
+	 * @param start el instante en el que empezo la actualizacion.
+	 */
+	private void stopPheromones (ACO colony, long start) {
+		long time = System.nanoTime() - start;
+		colony.addPheromoneTime(time);
+		stats.add(SolverStats.Phase.PHEROMONES, time);
+	}
+	
 	/**
 	 * Metodo que resetea a las hormigas de una colonia.
 	 */
@@ -521,11 +853,7 @@ public class VRP {
 		
 		for (int i = 0; i < ants.size(); i++) {
 			Ant ant = ants.get(i);
-			ant.setCapacity(Q);
-			List<Client> newMemory = new ArrayList<Client>();
-			newMemory.add(depot);
-			ant.setMemory(newMemory);
-			ant.setFinish(false);
+			ant.reset(Q, depot);
 		}
 		
 		colony.setAnts(ants);
@@ -537,29 +865,20 @@ public class VRP {
 	 * @param lengthLC la longitud de las listas de candidatos.
 	 */
 	public void acovrplc (ACO colony, int lengthLC) {
+		long start = stats.start();
 		Candidates candidates = new Candidates(lengthLC);
-		candidates.obtainCandidates(clients);
-		List<List<Client>> bestRoutes = aco.getBestRoutes();
+		candidates.obtainCandidates(clients, distances);
+		stats.stop(SolverStats.Phase.CANDIDATES, start);
+		List<List<Client>> bestRoutes = colony.getBestRoutes();
 		Boolean finishC = false; 
 		while(!finishC) {
-			List<Client> route = selectClientCL(aco);
+			List<Client> route = selectClientCL(colony);
 			bestRoutes.add(route);
 			resetAnts(colony);
-			Boolean aux = true;
-			
-			for (int i = 0; i < visits.size(); i++) {
-				int numVists = visits.get(i);
-				Boolean isVisited = false;
-				if (numVists != 0) {
-					isVisited = true;
-				}
-				aux = aux && isVisited;
-			}
-			
-			finishC = aux;
+			finishC = isVisitedAll(colony) || isExpired(colony);
 		}
 		
-		aco.setBestRoutes(bestRoutes);
+		colony.setBestRoutes(bestRoutes);
 	}
 	
 	/**
@@ -569,135 +888,140 @@ public class VRP {
 	 * @return el siguiente cliente j a visitar.
 	 */
 	public Client selectClientSR (ACO colony, Ant ant) {
-		double[][] pheromones = colony.getPheromones();
-		List<Client> memory = ant.getMemory();
-		int capacity = ant.getCapacity();
-		Client clientI = ant.getCurrentClient();
-		int i = searchIndexClient(clientI);
+		int i = searchIndexClient(ant.getCurrentClient());
 		Client clientJ = null;
-		double argMax = 0;
 		
-		for (int u = 0; u < clients.size(); u++) {
-			Client clientU = clients.get(u);
-			int idClientU = clientU.getId();
-			int demandU = clientU.getDemand();
-			int indexU = searchIndexClient(clientU);
-			int numVisits = visits.get(indexU);
-			
-			if (clientU.getId() != depot.getId()) {
-				if (numVisits == 0) {
-					if (!memory.contains(clientU)) {
-						double tauIU = pheromones[i][u];
-						int distanceIU = clientI.searchDistance(idClientU);
-						double etaIU = Math.pow(distanceIU, -1);
-						double aux = tauIU * Math.pow(etaIU, beta);
-						if (aux > argMax) {
-							if (demandU <= capacity) {
-								argMax = aux;
-								clientJ = clientU;
-							}
-						}
-					}
-				}
-			}
+		if (selectionCandidates != null) {
+			clientJ = selectMaxChoice(colony, ant, selectionCandidates[i], selectionCandidates[i].length);
+		}
+		
+		if (clientJ == null) {
+			clientJ = selectMaxChoice(colony, ant, null, clients.size());
 		}
 		
 		return clientJ;
 	}
 	
 	/**
-	 * Método auxiliar que calcula la suma del producto de la acumulación de feromonas por
-	 * la inversa de la distancia de todos los clientes que no pertenecen a la memoria 
-	 * de la hormiga.
+	 * Metodo auxiliar que selecciona, de los clientes dados, al cliente que 
+	 * puede visitar la hormiga con el mayor producto de las feromonas por la 
+	 * inversa de la distancia.
+	 * @param colony la colonia de hormigas.
 	 * @param ant la hormiga que va a seleccionar al siguiente cliente.
-	 * @return la suma del producto de la acumulación de feromonas por la inversa de la distancia
-	 * de todos los clientes que no pertenecen a la memoria de la hormiga.
-	 */
-	public double calculateSum (Ant ant, ACO colony) {
-		double[][] pheromones = colony.getPheromones();
-		List<Client> memory = ant.getMemory();
-		Client clientI = ant.getCurrentClient();
-		int indexI = searchIndexClient(clientI);
-		double sum = 0;
+	 * @param candidates los indices de los clientes, si es null se revisan 
+	 * todos los clientes.
+	 * @param size el numero de clientes que se revisan.
+	 * @return el cliente seleccionado, o null si la hormiga no puede visitar 
+	 * a ninguno.
+	 */
+	private Client selectMaxChoice (ACO colony, Ant ant, int[] candidates, int size) {
+		double[] choiceInfoI = colony.getChoiceInfo()[searchIndexClient(ant.getCurrentClient())];
+		Client clientJ = null;
+		double argMax = 0;
 		
-		for (int u = 0; u < clients.size(); u ++) {
-			Client clientU = clients.get(u);
-			int idClientU = clientU.getId();
-			int indexU = searchIndexClient(clientU);
-			
-			if (clientU.getId() != depot.getId()) {
-				if (!memory.contains(clientU)) {
-					double tauIU = pheromones[indexI][indexU];
-					int distanceIU = clientI.searchDistance(idClientU);
-					double etaIU = Math.pow(distanceIU, -1);
-					double aux = tauIU * Math.pow(etaIU, beta);
-					sum += aux;
-				}
+		for (int k = 0; k < size; k++) {
+			int u = candidates == null ? k : candidates[k];
+			double aux = choiceInfoI[u];
+			if (aux > argMax && canVisit(colony, ant, u)) {
+				argMax = aux;
+				clientJ = clients.get(u);
 			}
 		}
 		
-		return sum;
+		return clientJ;
+	}
+	
+	/**
+	 * Metodo auxiliar que indica si la hormiga puede visitar al cliente u: no
+	 * es el deposito, ni la colonia ni la hormiga lo han visitado y su demanda
+	 * no excede la capacidad de la hormiga.
+	 * @param colony la colonia de hormigas.
+	 * @param ant la hormiga.
+	 * @param u el indice del cliente.
+	 * @return true si la hormiga puede visitar al cliente, false en otro caso.
+	 */
+	private Boolean canVisit (ACO colony, Ant ant, int u) {
+		Client clientU = clients.get(u);
+		return u != depot.getIndex() && colony.getVisits()[u] == 0 && !ant.isVisited(clientU) &&
+		       clientU.getDemand() <= ant.getCapacity();
 	}
 	
 	/**
-	 * Método que calcula la probabilidad establecida por la inversa de la distancia
-	 * y la acumulación de feromonas.
-	 * @param ant la hormiga que va a seleccionar el siguiente cliente.
-	 * @param clientJ el cliente J, el proximo cliente a visitar.
-	 * @return la probabilidad establecida por la inversa de la distancia
-	 * y la acumulación de feromonas.
+	 * Metodo que selecciona al siguiente cliente j a visitar favoreciendo 
+	 * rutas cortas con altos niveles de feromonas. El cliente se elige con 
+	 * una ruleta, con probabilidad proporcional al producto de las feromonas 
+	 * por la inversa de la distancia.
+	 * @param ant la hormiga que va a seleccionar al siguiente cliente.
+	 * @return el siguiente cliente a visitar.
 	 */
-	public double calulatePIJ (ACO colony, Ant ant, Client clientJ) {
-		double[][] pheromones = colony.getPheromones();
-		List<Client> memory = ant.getMemory();
-		Client clientI = ant.getCurrentClient();
-		int indexI = searchIndexClient(clientI);
-		int indexJ = searchIndexClient(clientJ);
-		int numVisits = visits.get(indexJ);
-		int idClientJ = clientJ.getId();
-		double sum = calculateSum(ant, colony);
-		double pIJ = 0;
+	public Client selectClientHLP (ACO colony, Ant ant) {
+		int i = searchIndexClient(ant.getCurrentClient());
+		int size = 0;
 		
-		if (numVisits == 0) {
-			if (!memory.contains(clientJ)) {
-				double tauIJ = pheromones[indexI][indexJ];
-				int distanceIJ = clientI.searchDistance(idClientJ);
-				double etaIJ = Math.pow(distanceIJ, -1);
-				double aux = tauIJ * Math.pow(etaIJ, beta);
-				pIJ = aux / sum;
+		if (selectionCandidates != null) {
+			size = buildWheel(colony, ant, selectionCandidates[i], selectionCandidates[i].length);
+		}
+		
+		if (size == 0) {
+			size = buildWheel(colony, ant, null, clients.size());
+		}
+		
+		if (size == 0) {
+			return null;
+		}
+		
+		double[] cumulative = ant.getCumulative(clients.size());
+		int[] wheel = ant.getWheel(clients.size());
+		double r = ant.getRandom().nextDouble() * cumulative[size - 1];
+		int low = 0;
+		int high = size - 1;
+		
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulative[mid] > r) {
+				high = mid;
+			} else {
+				low = mid + 1;
 			}
 		}
 		
-		return pIJ;
+		return clients.get(wheel[low]);
 	}
 	
 	/**
-	 * Metodo que selecciona al siguiente cliente j a visitar favoreciendo 
-	 * rutas cortas con altos niveles de feromonas.
+	 * Metodo auxiliar que construye la ruleta con los clientes dados que 
+	 * puede visitar la hormiga. Cada cliente ocupa en la ruleta una parte 
+	 * proporcional al producto de las feromonas por la inversa de la 
+	 * distancia, y se guarda la suma acumulada para seleccionar al cliente 
+	 * con una busqueda binaria. Cada parte se limita para que la suma 
+	 * acumulada siempre sea finita.
+	 * @param colony la colonia de hormigas.
 	 * @param ant la hormiga que va a seleccionar al siguiente cliente.
-	 * @return el siguiente cliente a visitar.
+	 * @param candidates los indices de los clientes, si es null se revisan 
+	 * todos los clientes.
+	 * @param size el numero de clientes que se revisan.
+	 * @return el numero de clientes en la ruleta.
 	 */
-	public Client selectClientHLP (ACO colony, Ant ant) {
-		int capacity = ant.getCapacity();
-		Client clientJ = null;
+	private int buildWheel (ACO colony, Ant ant, int[] candidates, int size) {
+		double[] choiceInfoI = colony.getChoiceInfo()[searchIndexClient(ant.getCurrentClient())];
+		double[] cumulative = ant.getCumulative(clients.size());
+		int[] wheel = ant.getWheel(clients.size());
+		double maxWeight = Double.MAX_VALUE / clients.size();
+		double sum = 0;
+		int n = 0;
 		
-		for (int j = 0; j < clients.size(); j ++) {
-			Client client = clients.get(j);
-			int demand = client.getDemand();
-			if (client.getId() != depot.getId()) {
-				double pIJ = calulatePIJ (colony, ant, client);
-			
-				if (pIJ != 0) {
-					if (demand <= capacity) {
-						clientJ = client;
-						break;
-					}
-				}
-			
+		for (int k = 0; k < size; k++) {
+			int u = candidates == null ? k : candidates[k];
+			double aux = Math.min(choiceInfoI[u], maxWeight);
+			if (aux > 0 && canVisit(colony, ant, u)) {
+				sum += aux;
+				cumulative[n] = sum;
+				wheel[n] = u;
+				n++;
 			}
 		}
 		
-		return clientJ;
+		return n;
 	}
 	
 	/**
@@ -707,7 +1031,7 @@ public class VRP {
 	 */
 	public Client selectClientJ (ACO colony, Ant ant) {
 		Client clientJ = null;
-		q = random.nextInt(2);
+		double q = ant.getRandom().nextDouble();
 		
 		if (q <= q0) {
 			clientJ = selectClientSR(colony, ant);
@@ -724,88 +1048,44 @@ public class VRP {
 	 */
 	public List<Client> selectClientVRP (ACO colony) {
 		List<Ant> ants = colony.getAnts();
-		Boolean finishC = false;
-		
-		while (!finishC) {
-			for (int i = 0; i < ants.size(); i++) {
-				Ant ant = ants.get(i);
-				Boolean finishA = ant.getFinish();
-				
-				if(!finishA) {
-					Client client = selectClientJ(colony, ant);
-					
-					if (client != null) {
-						ant.addCurrentClient(client);
-						int capacity = ant.getCapacity();
-						
-						if (capacity == 0) {
-							ant.addCurrentClient(depot);
-							ant.setFinish(true);
-						}
-					} else {
-						ant.addCurrentClient(depot);
-						ant.setFinish(true);
-					}
-				}
-			}
-			
-			Boolean aux = true;
-			
-			for (int i = 0; i < ants.size(); i++) {
-				Ant ant = ants.get(i);
-				Boolean finishA = ant.getFinish();
-				aux = aux && finishA;
-			}
-			
-			finishC = aux;
-		}
+		constructRoutes(colony, false);
 		
+		long start = System.nanoTime();
 		for (Ant ant : ants) {
 			List<Client> route = ant.getMemory();
 			colony.setVisitClient(route);
 			colony.updateLP();
 		}
+		stopPheromones(colony, start);
 		
 		List<Client> bestRoute = obtainBestRoute(ants);
-		updateVisits(bestRoute);
+		updateVisits(colony, bestRoute);
 		return bestRoute;
 	}
 	
 	/**
 	 * Metodo que busca las mejores rutas para satisfacer la demanda total de 
-	 * los clientes.
+	 * los clientes. Cada iteracion construye una ruta, realiza la actualizacion 
+	 * global de las feromonas y despues la evaporacion externa, todo en el 
+	 * hilo de la colonia, por lo que las hormigas nunca leen la matriz de 
+	 * feromonas mientras se modifica.
 	 */
 	public void acovrp (ACO colony) {
-		EvaporateDaemon evaporate = new EvaporateDaemon(colony, 0.2);
 		List<List<Client>> bestRoutes = colony.getBestRoutes();
 		Boolean finishC = false;
-		evaporate.setDaemon(true);
-		evaporate.start();
 		
 		while (!finishC) {
 			List<Client> bestRoute = selectClientVRP(colony);
 			int distance = calculateDistance(bestRoute);
 			bestRoutes.add(bestRoute);
+			long start = System.nanoTime();
 			colony.updateGP(bestRoute, distance);
+			colony.evaporateP(evaporation);
+			stopPheromones(colony, start);
 			resetAnts(colony);
-			
-			Boolean aux = true;
-			
-			for (int i = 0; i < visits.size(); i++) {
-				int numVisits = visits.get(i);
-				Boolean isVisited = false;
-				
-				if (numVisits != 0) {
-					isVisited = true;
-				}
-				
-				aux = aux && isVisited;
-			}
-			
-			finishC = aux;
+			finishC = isVisitedAll(colony) || isExpired(colony);
 		}
 		
-		evaporate.stopDaemon();
 		colony.setBestRoutes(bestRoutes);
 	}
 	
@@ -816,6 +1096,7 @@ public class VRP {
 	 * @return las rutas mejoradas.
 	 */
 	public List<List<Client>> applyTwoOpt (ACO colony, TwoOpt twoOpt) {
+		long start = stats.start();
 		List<List<Client>> routes = colony.getBestRoutes();
 		for (int i = 0; i < routes.size(); i++) {
 			List<Client> route = routes.get(i);
@@ -828,6 +1109,7 @@ public class VRP {
 			}
 		}
 		
+		stats.stop(SolverStats.Phase.TWO_OPT, start);
 		return routes;
 	}
 	
@@ -837,11 +1119,45 @@ public class VRP {
 	 */
 	public void acovrpTwoOpt (ACO colony) {
 		acovrp(colony);
-		TwoOpt twoOpt = new TwoOpt(this);
+		if (!isVisitedAll(colony)) {
+			return;
+		}
+		TwoOpt twoOpt = new TwoOpt(this, twoOptMode);
 		List<List<Client>> bestRoutes = applyTwoOpt(colony, twoOpt);
 		colony.setBestRoutes(bestRoutes);
 	}
 	
+	/**
+	 * Metodo que mejora las rutas encontradas moviendo clientes entre ellas.
+	 * @param colony la colonia de hormigas que encontro las rutas.
+	 * @param interRoute la instancia de la clase InterRoute.
+	 * @return las rutas mejoradas.
+	 */
+	public List<List<Client>> applyInterRoute (ACO colony, InterRoute interRoute) {
+		long start = stats.start();
+		List<List<Client>> routes = interRoute.improveRoutes(colony.getBestRoutes());
+		stats.stop(SolverStats.Phase.INTER_ROUTE, start);
+		return routes;
+	}
+	
+	/**
+	 * Metodo que busca las mejores rutas para satisfacer la demanda total de 
+	 * los clientes utilizando la heuristica 2-opt y movimientos de clientes 
+	 * entre rutas. Despues de mover clientes se vuelve a aplicar 2-opt a las 
+	 * rutas que cambiaron.
+	 */
+	public void acovrpInterRoute (ACO colony) {
+		acovrp(colony);
+		if (!isVisitedAll(colony)) {
+			return;
+		}
+		TwoOpt twoOpt = new TwoOpt(this, twoOptMode);
+		InterRoute interRoute = new InterRoute(this, Q);
+		colony.setBestRoutes(applyTwoOpt(colony, twoOpt));
+		colony.setBestRoutes(applyInterRoute(colony, interRoute));
+		colony.setBestRoutes(applyTwoOpt(colony, twoOpt));
+	}
+	
 	/**
 	 * Metodo que construye las colonias de hormigas que se van a utilizar.
 	 */
@@ -849,6 +1165,8 @@ public class VRP {
 		colonies = new ArrayList<ACO>();
 		for (int i = 0; i < m; i++) {
 			ACO colonyI = new ACO(m, Q, alpha, tau0, clients);
+			colonyI.setHeuristic(heuristic);
+			colonyI.setStats(stats);
 			colonies.add(colonyI);
 		}
 	}
@@ -895,19 +1213,186 @@ public class VRP {
 		return bestColony;
 	}
 	
+	/**
+	 * Metodo que ejecuta la busqueda en cada una de las colonias, en paralelo 
+	 * con a lo mas el numero de hilos configurado. Cada colonia tiene sus 
+	 * propias visitas, generador de numeros aleatorios y feromonas, por lo 
+	 * que las colonias no comparten estado mutable.
+	 * @param search la busqueda que se ejecuta en cada colonia.
+	 */
+	public void runColonies (Consumer<ACO> search) {
+		int nThreads = Math.max(1, Math.min(threads, colonies.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		
+		try {
+			for (ACO colony : colonies) {
+				results.add(executor.submit(() -> {
+					SolverEvents.ColonyCompleted event = new SolverEvents.ColonyCompleted();
+					event.begin();
+					search.accept(colony);
+					if (event.shouldCommit()) {
+						event.iterations = colony.getIterations();
+						event.distance = calculateTotalDistance(colony);
+						event.commit();
+					}
+				}));
+			}
+			
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			System.err.println("Error al ejecutar las colonias de hormigas: " + e.getCause());
+			System.exit(0);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Metodo que repite la busqueda en la colonia hasta que se cumple alguno 
+	 * de los criterios para detenerla. Las feromonas se conservan entre 
+	 * soluciones y, antes de construir cada una, se refuerzan las aristas de 
+	 * la mejor solucion de la colonia. Si el tiempo se termina mientras se 
+	 * construye una solucion, esa solucion se descarta. Al terminar, las 
+	 * mejores rutas de la colonia son las de su mejor solucion.
+	 * @param colony la colonia de hormigas.
+	 * @param search la busqueda que construye una solucion completa.
+	 */
+	public void anytime (ACO colony, Consumer<ACO> search) {
+		List<List<Client>> colonyBest = null;
+		int colonyDistance = 0;
+		int stall = 0;
+		
+		do {
+			SolverEvents.ColonyIteration event = new SolverEvents.ColonyIteration();
+			event.begin();
+			
+			if (colony.getIterations() > 0) {
+				long start = System.nanoTime();
+				for (List<Client> route : colonyBest) {
+					colony.updateGP(route, calculateDistance(route));
+				}
+				stopPheromones(colony, start);
+				setUpVisits(colony);
+				resetAnts(colony);
+				colony.setBestRoutes(new ArrayList<List<Client>>());
+			}
+			
+			search.accept(colony);
+			if (!isVisitedAll(colony)) {
+				event.iteration = colony.getIterations() + 1;
+				event.pheromoneTime = colony.takePheromoneTime();
+				event.discarded = true;
+				event.commit();
+				break;
+			}
+			
+			int distance = calculateTotalDistance(colony);
+			if (colonyBest == null || distance < colonyDistance) {
+				colonyBest = colony.getBestRoutes();
+				colonyDistance = distance;
+				stall = 0;
+				recordSolution(colonyBest, distance);
+			} else {
+				stall++;
+			}
+			
+			colony.nextIteration();
+			stats.trace(colony.getIterations(), distance, getBestSoFarDistance());
+			
+			long pheromoneTime = colony.takePheromoneTime();
+			if (event.shouldCommit()) {
+				event.iteration = colony.getIterations();
+				event.routes = colony.getBestRoutes().size();
+				event.distance = distance;
+				event.bestDistance = colonyDistance;
+				event.pheromoneTime = pheromoneTime;
+				event.commit();
+			}
+		} while (!isFinished(colony.getIterations(), stall));
+		
+		colony.setBestRoutes(colonyBest);
+	}
+	
+	/**
+	 * Metodo auxiliar que indica si se cumplio alguno de los criterios para 
+	 * detener la busqueda en una colonia, o si se interrumpio su hilo.
+	 * @param iterations el numero de soluciones que ha construido la colonia.
+	 * @param stall el numero de soluciones seguidas sin mejora.
+	 * @return true si la colonia ya no debe construir otra solucion.
+	 */
+	private Boolean isFinished (int iterations, int stall) {
+		if (timeLimit == 0 && maxIterations == 0 && stallIterations == 0) {
+			return true;
+		}
+		
+		return Thread.currentThread().isInterrupted() 
+				|| (timeLimit > 0 && System.nanoTime() - deadline >= 0)
+				|| (maxIterations > 0 && iterations >= maxIterations)
+				|| (stallIterations > 0 && stall >= stallIterations);
+	}
+	
+	/**
+	 * Metodo auxiliar que indica si se termino el tiempo de la busqueda y la 
+	 * colonia ya tiene una solucion completa, por lo que puede abandonar la 
+	 * solucion que esta construyendo.
+	 * @param colony la colonia de hormigas.
+	 * @return true si la colonia puede abandonar la solucion actual.
+	 */
+	private Boolean isExpired (ACO colony) {
+		return timeLimit > 0 && colony.getIterations() > 0 
+				&& System.nanoTime() - deadline >= 0;
+	}
+	
+	/**
+	 * Metodo auxiliar que guarda las rutas de una colonia si son las mejores 
+	 * encontradas hasta el momento.
+	 * @param routes las rutas de la solucion.
+	 * @param distance la distancia total de las rutas.
+	 */
+	private synchronized void recordSolution (List<List<Client>> routes, int distance) {
+		if (bestSoFar == null || distance < bestSoFarDistance) {
+			bestSoFar = new ArrayList<List<Client>>(routes);
+			bestSoFarDistance = distance;
+		}
+	}
+	
+	/**
+	 * Metodo auxiliar que regresa la distancia total de las mejores rutas 
+	 * encontradas hasta el momento por alguna colonia.
+	 * @return la distancia total de las mejores rutas hasta el momento.
+	 */
+	private synchronized int getBestSoFarDistance () {
+		return bestSoFarDistance;
+	}
+	
+	/**
+	 * Metodo que imprime las mejores rutas encontradas hasta el momento, si 
+	 * la busqueda se interrumpe antes de imprimir su resultado. Se utiliza 
+	 * desde el hook de cierre de la maquina virtual.
+	 * @return true si se imprimieron las rutas, false si ya se habian 
+	 * impreso o aun no hay rutas.
+	 */
+	public synchronized Boolean reportBestSoFar () {
+		if (reported || bestSoFar == null) {
+			return false;
+		}
+		
+		System.err.println("\n Busqueda interrumpida, se imprimen las mejores " + 
+		                   "rutas encontradas. \n");
+		convertRoutes(bestSoFar);
+		return true;
+	}
+	
 	/**
 	 * Metodo que busca las mejores rutas para satisfacer la demanda total de 
 	 * los clientes utilizando multiples colonias de hormigas.
 	 */
 	public void macovrp () {
 		createColonies();
-		
-		for (int i = 0; i < colonies.size(); i++) {
-			ACO colony = colonies.get(i);
-			acovrp(colony);
-			visits = new ArrayList<Integer>();
-			setUpVisits();
-		}
+		runColonies(colony -> anytime(colony, c -> acovrp(c)));
 	}
 	
 	/**
@@ -915,104 +1400,133 @@ public class VRP {
 	 * los clientes utilizando multiples colonias de hormigas y la heuristica 2-opt.
 	 */
 	public void macovrpTwoOpt () {
-		macovrp();
-		TwoOpt twoOpt = new TwoOpt(this);
-		
-		for (int i = 0; i < colonies.size(); i++) {
-			ACO colony = colonies.get(i);
-			List<List<Client>> bestRoutes = applyTwoOpt(colony, twoOpt);
-			colony.setBestRoutes(bestRoutes);
+		createColonies();
+		runColonies(colony -> {
+			TwoOpt twoOpt = new TwoOpt(this, twoOptMode);
+			anytime(colony, c -> {
+				acovrp(c);
+				if (isVisitedAll(c)) {
+					c.setBestRoutes(applyTwoOpt(c, twoOpt));
+				}
+			});
+		});
+	}
+	
+	/**
+	 * Metodo auxiliar que escribe la estrategia con la que se buscan las 
+	 * rutas.
+	 * @param strategy el numero de la estrategia.
+	 * @param name el nombre de la estrategia.
+	 */
+	private void writeHeader (int strategy, String name) {
+		try {
+			writer.header(strategy, name);
+		} catch (IOException e) {
+			System.err.println("Error al escribir las rutas encontradas.");
 		}
 	}
 	
 	public void vrp (int strategy, int lengthLC) {
-		switch(strategy) {
-			case 1:
-				System.out.println("Colonia de hormigas unica \n"); 
-				acovrp(aco);
-				convertRoutes(aco);
-				break;
-			case 2:
-				System.out.println("Colonia de hormigas unica y Heuristica 2-Opt \n"); 
-				acovrpTwoOpt(aco);
-				convertRoutes(aco);
-				break;
-			case 3:
-				if (lengthLC != 0) { 
-					System.out.println("Colonia de hormigas unica y Listas de Candidatos \n"); 
-					acovrplc(aco, lengthLC);
-					convertRoutes(aco);
-				} else {
-          			System.err.println("\n No se proporciono una longitud " + 
-          		                       "valida para la lista de candidatos. \n");
-                    System.exit(0);
-          		}
-				break;
-			case 4:
-				System.out.println("Multiples Colonias de Hormigas \n");
-				macovrp(); 
-				ACO bestColony1 = obtainBestSolution();
-				convertRoutes(bestColony1);
-				break;
-			case 5:
-				System.out.println("Multiples Colonias de Hormigas y Heuristica 2-Opt \n");
-				macovrpTwoOpt();
-				ACO bestColony2 = obtainBestSolution();
-				convertRoutes(bestColony2);
-				break;
-			case 6:
-				if (lengthLC != 0) { 
-					System.out.println("ACO-VRP y Listas de Candidatos \n"); 
-					acovrplc(aco, lengthLC);
-					convertRoutes(aco);
-				} else {
-          			System.err.println("\n No se proporciono una longitud " + 
-          		                       "valida para la lista de candidatos. \n");
-                    System.exit(0);
-          		}
-				break;
+		deadline = System.nanoTime() + timeLimit;
+		long start = stats.start();
+		ACO solution = aco;
+		
+		if (strategy != 3 && strategy != 6) {
+			setSelectionCandidates(lengthLC);
+		}
+		
+		try {
+			switch(strategy) {
+				case 1:
+					writeHeader(strategy, "Colonia de hormigas unica");
+					anytime(aco, colony -> acovrp(colony));
+					break;
+				case 2:
+					writeHeader(strategy, "Colonia de hormigas unica y Heuristica 2-Opt");
+					anytime(aco, colony -> acovrpTwoOpt(colony));
+					break;
+				case 3:
+					if (lengthLC != 0) { 
+						writeHeader(strategy, "Colonia de hormigas unica y Listas de Candidatos");
+						anytime(aco, colony -> acovrplc(colony, lengthLC));
+					} else {
+	          			System.err.println("\n No se proporciono una longitud " + 
+	          		                       "valida para la lista de candidatos. \n");
+	                    System.exit(0);
+	          		}
+					break;
+				case 4:
+					writeHeader(strategy, "Multiples Colonias de Hormigas");
+					macovrp(); 
+					solution = obtainBestSolution();
+					break;
+				case 5:
+					writeHeader(strategy, "Multiples Colonias de Hormigas y Heuristica 2-Opt");
+					macovrpTwoOpt();
+					solution = obtainBestSolution();
+					break;
+				case 6:
+					if (lengthLC != 0) { 
+						writeHeader(strategy, "ACO-VRP y Listas de Candidatos");
+						anytime(aco, colony -> acovrplc(colony, lengthLC));
+					} else {
+	          			System.err.println("\n No se proporciono una longitud " + 
+	          		                       "valida para la lista de candidatos. \n");
+	                    System.exit(0);
+	          		}
+					break;
+				case 7:
+					writeHeader(strategy, "Colonia de hormigas unica, Heuristica 2-Opt y Busqueda entre rutas");
+					anytime(aco, colony -> acovrpInterRoute(colony));
+					break;
+			}
+		} finally {
+			shutdownAntPool();
 		}
+		
+		stats.stop(SolverStats.Phase.SEARCH, start);
+		convertRoutes(solution);
 	}
 	
 	/**
-	 * Metodo que convierte las rutas encontradas en String.
-	 * @return las rutas encontradas en String.
+	 * Metodo que escribe las rutas encontradas por la colonia.
+	 * @param colony la colonia que encontro las rutas.
 	 */
 	public void convertRoutes (ACO colony) {
-		List<List<Client>> bestRoutes = colony.getBestRoutes();
+		convertRoutes(colony.getBestRoutes());
+	}
+	
+	/**
+	 * Metodo que escribe las rutas dadas, ruta por ruta, con el formato de 
+	 * salida. Las rutas se escriben una sola vez, aunque la busqueda se 
+	 * interrumpa mientras se escriben.
+	 * @param bestRoutes las rutas que se van a imprimir.
+	 */
+	public synchronized void convertRoutes (List<List<Client>> bestRoutes) {
+		if (reported) {
+			return;
+		}
+		reported = true;
+		solution = bestRoutes;
+		
 		int totalDistance = 0;
 		int totalDemand = 0;
-		String r = "Mejores rutas encontradas: \n\n";
 		
-		for (int i = 0; i < bestRoutes.size(); i++) {
-			List<Client> route = bestRoutes.get(i);
-			int distance = calculateDistance(route);
-			int demand = calculateDemand(route);
-			totalDistance += distance;
-			totalDemand += demand;
-			r += "Vehículo " + (i + 1) + ": \n";
-			r += "Ruta: ";
+		try {
+			writer.begin();
 			
-			for (int j = 0; j < route.size(); j++) {
-				Client c = route.get(j);
-				if (j == route.size() - 1) {
-					r +=  c.getId() + "] \n";
-				} else {
-					if (j == 0) {
-						r += "[" + c.getId() + ", ";
-					} else {
-						r +=  c.getId() + ", ";
-					}
-				}
+			for (int i = 0; i < bestRoutes.size(); i++) {
+				List<Client> route = bestRoutes.get(i);
+				int distance = calculateDistance(route);
+				int demand = calculateDemand(route);
+				totalDistance += distance;
+				totalDemand += demand;
+				writer.route(i + 1, route, demand, distance);
 			}
 			
-			r += "Demanda atendida: " + demand + "\n";
-			r += "Distancia recorrida: " + distance + "\n\n";
+			writer.end(totalDistance, totalDemand);
+		} catch (IOException e) {
+			System.err.println("Error al escribir las rutas encontradas.");
 		}
-		
-		r += "Distancia total recorrida: " + totalDistance + "\n";
-		r += "Demanda total atendida: " + totalDemand + "\n";
-		
-		System.out.println(r);
 	}
 }